@@ -2,6 +2,9 @@ plugins {
     java
     id("org.springframework.boot") version "3.3.4"
     id("io.spring.dependency-management") version "1.1.6"
+    id("me.champeau.jmh") version "0.7.2"
+    // Only used for Spring AOT processing, which Spring Boot enables when this plugin is present; no native image is built
+    id("org.graalvm.buildtools.native") version "0.10.3"
 }
 
 group = "org.soup"
@@ -9,7 +12,8 @@ version = "0.0.1-SNAPSHOT"
 
 java {
     toolchain {
-        languageVersion = JavaLanguageVersion.of(17)
+        // Build with -PjavaVersion=21 to run request handling on virtual threads
+        languageVersion = JavaLanguageVersion.of(providers.gradleProperty("javaVersion").getOrElse("17"))
     }
 }
 
@@ -24,19 +28,48 @@ repositories {
 }
 
 dependencies {
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.liquibase:liquibase-core")
     implementation("com.auth0:java-jwt:4.4.0")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("org.bouncycastle:bcprov-jdk18on:1.78.1")
     compileOnly("org.projectlombok:lombok")
-    runtimeOnly("org.postgresql:postgresql")
+    implementation("org.postgresql:postgresql")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    jmhImplementation("org.springframework:spring-test")
+    jmhRuntimeOnly("com.h2database:h2")
+}
+
+jmh {
+    includes = listOf(providers.gradleProperty("jmhIncludes").getOrElse(".*"))
+    if (!providers.gradleProperty("jmhIncludes").isPresent) {
+        // Load benchmarks need a running service and startup benchmarks launch the boot jar against the local database,
+        // so both are only run when selected explicitly
+        excludes = listOf("\\.load\\.", "\\.startup\\.")
+    }
+    // JSON results can be kept per commit and compared, e.g. -PjmhResultsFile=build/results/jmh/$(git rev-parse --short HEAD).json
+    resultFormat = "JSON"
+    resultsFile = layout.projectDirectory.file(
+        providers.gradleProperty("jmhResultsFile").getOrElse("build/results/jmh/results.json"))
+    // Benchmarks that launch the service themselves need other counts, e.g. one fresh node per fork
+    warmupIterations = providers.gradleProperty("jmhWarmupIterations").getOrElse("2").toInt()
+    iterations = providers.gradleProperty("jmhIterations").getOrElse("5").toInt()
+    fork = providers.gradleProperty("jmhFork").getOrElse("1").toInt()
+    providers.gradleProperty("jmhProfilers").orNull?.let { profilers = it.split(",") }
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Tests and benchmarks run on the regular context, and test AOT processing cannot handle @MockBean
+tasks.named("processTestAot") {
+    enabled = false
+}
@@ -0,0 +1,29 @@
+package org.soup.authservice.reactive;
+
+import org.soup.authservice.service.RateLimitServiceImpl;
+import org.soup.authservice.utils.InMemoryRateLimiterBackend;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.PasswordHashCalibrator;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Non-blocking variant of the service: WebFlux on Netty and R2DBC instead of servlet threads and JDBC. Tokens,
+ * password hashes and rate limits come from the same components as in the servlet build, imported rather than scanned
+ * so that none of its servlet or JPA beans end up in this context.
+ */
+@SpringBootApplication
+@EnableScheduling
+@Import({JwtKeys.class, JwtUtils.class, VerifiedTokenCache.class, PasswordHashCalibrator.class,
+        RateLimitServiceImpl.class, InMemoryRateLimiterBackend.class})
+public class ReactiveAuthServiceApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveAuthServiceApplication.class, args);
+    }
+
+}
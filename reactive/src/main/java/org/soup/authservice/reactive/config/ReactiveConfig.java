@@ -0,0 +1,49 @@
+package org.soup.authservice.reactive.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.soup.authservice.reactive.handler.AuthHandler;
+import org.soup.authservice.utils.PasswordHashCalibrator;
+import org.soup.authservice.utils.PepperedPasswordEncoder;
+import org.soup.authservice.utils.TimedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+public class ReactiveConfig {
+    @Value("${security.password.salt}")
+    private String salt;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordHashCalibrator passwordHashCalibrator, MeterRegistry meterRegistry) {
+        return new TimedPasswordEncoder(
+                new PepperedPasswordEncoder(salt, passwordHashCalibrator.createEncoder()), meterRegistry);
+    }
+
+    /**
+     * Runs password hashing off the event loop. Like the hashing pool of the servlet build it has a fixed number of
+     * threads and a bounded queue, and a full queue rejects the task, which is answered with 503. Reactor caps the
+     * queue of each worker rather than the total, so the configured capacity is split between the threads.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(
+            @Value("${security.password.hashing.threads}") int threads,
+            @Value("${security.password.hashing.queue-capacity}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, Math.max(1, queueCapacity / threads), "password-hashing");
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> authRoutes(AuthHandler authHandler) {
+        return route(POST("/sign-up"), authHandler::signUp)
+                .andRoute(POST("/auth"), authHandler::auth)
+                .andRoute(POST("/refresh"), authHandler::refresh);
+    }
+}
@@ -0,0 +1,8 @@
+package org.soup.authservice.reactive.exception;
+
+// Stands in for Spring Security's BadCredentialsException, which this build does not depend on
+public class InvalidCredentialsException extends RuntimeException {
+    public InvalidCredentialsException(String message) {
+        super(message);
+    }
+}
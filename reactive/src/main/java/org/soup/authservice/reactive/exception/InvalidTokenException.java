@@ -0,0 +1,8 @@
+package org.soup.authservice.reactive.exception;
+
+// Stands in for Spring Security's InvalidCookieException, which this build does not depend on
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
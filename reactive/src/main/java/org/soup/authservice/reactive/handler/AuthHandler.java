@@ -0,0 +1,129 @@
+package org.soup.authservice.reactive.handler;
+
+import org.soup.authservice.model.AuditEventType;
+import org.soup.authservice.model.User;
+import org.soup.authservice.reactive.service.ReactiveAuthService;
+import org.soup.authservice.reactive.service.ReactiveTokenService;
+import org.soup.authservice.reactive.utils.ReactiveAuthCookies;
+import org.soup.authservice.service.AuditService;
+import org.soup.authservice.service.RateLimitService;
+import org.soup.authservice.utils.AuthCookies;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * {@code /sign-up}, {@code /auth} and {@code /refresh} with the parameters, cookies and status codes of the servlet
+ * build's AuthController, and the same rate limits and audit events. Nothing here blocks: queries go through R2DBC and
+ * hashing through its own scheduler, so the few event loop threads can keep thousands of connections waiting at once.
+ */
+@Component
+public class AuthHandler {
+    private final ReactiveAuthService authService;
+
+    private final ReactiveTokenService tokenService;
+
+    private final RateLimitService rateLimitService;
+
+    private final AuditService auditService;
+
+    private final ErrorResponses errorResponses;
+
+    public AuthHandler(
+            ReactiveAuthService authService,
+            ReactiveTokenService tokenService,
+            RateLimitService rateLimitService,
+            AuditService auditService,
+            ErrorResponses errorResponses) {
+        this.authService = authService;
+        this.tokenService = tokenService;
+        this.rateLimitService = rateLimitService;
+        this.auditService = auditService;
+        this.errorResponses = errorResponses;
+    }
+
+    public Mono<ServerResponse> signUp(ServerRequest request) {
+        String remoteAddress = remoteAddress(request);
+        return credentials(request)
+                .flatMap(credentials -> audited(AuditEventType.SIGN_UP, credentials.username(), remoteAddress, () -> {
+                    rateLimitService.checkSignUp(credentials.username(), remoteAddress);
+                    return authService.registerUser(credentials.username(), credentials.password());
+                }))
+                .then(ServerResponse.status(HttpStatus.CREATED).build())
+                .onErrorResume(errorResponses::toResponse);
+    }
+
+    public Mono<ServerResponse> auth(ServerRequest request) {
+        String remoteAddress = remoteAddress(request);
+        return credentials(request)
+                .flatMap(credentials -> audited(AuditEventType.LOGIN, credentials.username(), remoteAddress, () -> {
+                    rateLimitService.checkAuth(credentials.username(), remoteAddress);
+                    return authService.authenticateUser(credentials.username(), credentials.password());
+                }))
+                .flatMap(tokenService::createAuthCookieHeaders)
+                .flatMap(headers -> ServerResponse.ok().headers(h -> h.addAll(headers)).build())
+                .onErrorResume(errorResponses::toResponse);
+    }
+
+    public Mono<ServerResponse> refresh(ServerRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        String refreshToken = ReactiveAuthCookies.read(request, AuthCookies.REFRESH_TOKEN_NAME);
+        return audited(AuditEventType.REFRESH, null, remoteAddress(request),
+                () -> tokenService.refreshTokens(refreshToken, headers))
+                .then(Mono.defer(() -> ServerResponse.ok().headers(h -> h.addAll(headers)).build()))
+                .onErrorResume(errorResponses::toResponse);
+    }
+
+    /**
+     * Records the outcome of the request, including rejections thrown before the action returned its result. The
+     * username of a refresh is only known once it succeeded.
+     */
+    private <T> Mono<T> audited(
+            AuditEventType type,
+            String username,
+            String remoteAddress,
+            Supplier<Mono<T>> action) {
+        return Mono.defer(action)
+                .doOnSuccess(value -> {
+                    if (value instanceof User user) {
+                        auditService.record(type, true, user.id(), user.username(), remoteAddress);
+                    } else {
+                        auditService.record(type, true, null, username, remoteAddress);
+                    }
+                })
+                .doOnError(e -> auditService.record(type, false, null, username, remoteAddress));
+    }
+
+    // The address of the connection, like getRemoteAddr() in the servlet build
+    private static String remoteAddress(ServerRequest request) {
+        return request.remoteAddress()
+                .map(address -> address.getAddress() == null
+                        ? address.getHostString()
+                        : address.getAddress().getHostAddress())
+                .orElse(null);
+    }
+
+    // Like @RequestParam, the parameters may come in the query string or in a form body
+    private static Mono<Credentials> credentials(ServerRequest request) {
+        return request.formData()
+                .map(form -> new Credentials(
+                        param(request, form.getFirst("user"), "user"),
+                        param(request, form.getFirst("password"), "password")));
+    }
+
+    private static String param(ServerRequest request, String formValue, String name) {
+        String value = request.queryParam(name).orElse(formValue);
+        if (value == null) {
+            throw new IllegalArgumentException("Required parameter '" + name + "' is not present.");
+        }
+        return value;
+    }
+
+    private record Credentials(String username, String password) {
+    }
+}
@@ -0,0 +1,85 @@
+package org.soup.authservice.reactive.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.soup.authservice.exception.RateLimitExceededException;
+import org.soup.authservice.exception.UserAlreadyExistsException;
+import org.soup.authservice.reactive.exception.InvalidCredentialsException;
+import org.soup.authservice.reactive.exception.InvalidTokenException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maps failures to the same responses as the servlet build's ExceptionController and counts them under the same
+ * metric, so dashboards and clients cannot tell the builds apart.
+ */
+@Component
+public class ErrorResponses {
+    private final Counter invalidRequests;
+
+    private final Counter duplicateUsers;
+
+    private final Counter badCredentials;
+
+    private final Counter invalidCookies;
+
+    private final Counter busyRejections;
+
+    private final Counter rateLimitedRequests;
+
+    public ErrorResponses(MeterRegistry meterRegistry) {
+        this.invalidRequests = rejections(meterRegistry, "invalid_request");
+        this.duplicateUsers = rejections(meterRegistry, "duplicate_user");
+        this.badCredentials = rejections(meterRegistry, "bad_credentials");
+        this.invalidCookies = rejections(meterRegistry, "invalid_cookie");
+        this.busyRejections = rejections(meterRegistry, "busy");
+        this.rateLimitedRequests = rejections(meterRegistry, "rate_limited");
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("request.rejections")
+                .description("Requests rejected by the service, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    public Mono<ServerResponse> toResponse(Throwable e) {
+        if (e instanceof UserAlreadyExistsException) {
+            duplicateUsers.increment();
+            return ServerResponse.badRequest().bodyValue(e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            invalidRequests.increment();
+            return ServerResponse.badRequest().bodyValue(e.getMessage());
+        }
+        if (e instanceof InvalidCredentialsException) {
+            badCredentials.increment();
+            return ServerResponse.badRequest().bodyValue(e.getMessage());
+        }
+        if (e instanceof InvalidTokenException) {
+            invalidCookies.increment();
+            return ServerResponse.status(HttpStatus.FORBIDDEN).bodyValue(e.getMessage());
+        }
+        // A full hashing queue, the reactive counterpart of a rejected task on the servlet build's hashing pool
+        if (e instanceof RejectedExecutionException) {
+            busyRejections.increment();
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .bodyValue("Server is busy, try again later");
+        }
+        if (e instanceof RateLimitExceededException rateLimitExceeded) {
+            rateLimitedRequests.increment();
+            long retryAfterSeconds = Math.max((rateLimitExceeded.getRetryAfterMillis() + 999) / 1000, 1);
+            return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                    .bodyValue(e.getMessage());
+        }
+        // Anything else is left to the default WebFlux error handling and logged there
+        return Mono.error(e);
+    }
+}
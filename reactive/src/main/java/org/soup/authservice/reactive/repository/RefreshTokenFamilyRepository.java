@@ -0,0 +1,43 @@
+package org.soup.authservice.reactive.repository;
+
+import org.soup.authservice.reactive.repository.entity.RefreshTokenFamilyEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenFamilyRepository extends R2dbcRepository<RefreshTokenFamilyEntity, UUID> {
+    @Modifying
+    @Query("insert into refresh_token_families (family_id, user_id, current_jti, expires_at) "
+            + "values (:familyId, :userId, :jti, :expiresAt)")
+    Mono<Integer> insertFamily(
+            @Param("familyId") UUID familyId,
+            @Param("userId") UUID userId,
+            @Param("jti") UUID jti,
+            @Param("expiresAt") Instant expiresAt);
+
+    // Succeeds only for the token that is current, so a consumed token can never be rotated twice
+    @Modifying
+    @Query("update refresh_token_families set current_jti = :nextJti, expires_at = :expiresAt "
+            + "where family_id = :familyId and current_jti = :jti and not revoked and expires_at > :now")
+    Mono<Integer> rotate(
+            @Param("familyId") UUID familyId,
+            @Param("jti") UUID jti,
+            @Param("nextJti") UUID nextJti,
+            @Param("expiresAt") Instant expiresAt,
+            @Param("now") Instant now);
+
+    @Query("select exists (select 1 from refresh_token_families "
+            + "where family_id = :familyId and current_jti = :jti and not revoked and expires_at > :now)")
+    Mono<Boolean> isCurrent(@Param("familyId") UUID familyId, @Param("jti") UUID jti, @Param("now") Instant now);
+
+    @Modifying
+    @Query("update refresh_token_families set revoked = true where family_id = :familyId")
+    Mono<Integer> revoke(@Param("familyId") UUID familyId);
+}
@@ -0,0 +1,35 @@
+package org.soup.authservice.reactive.repository;
+
+import org.soup.authservice.reactive.repository.entity.UserEntity;
+import org.soup.authservice.repository.projection.UserCredentials;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * The queries of the servlet build's UserRepository that the sign-up and login paths need, on the same tables.
+ */
+@Repository
+public interface UserRepository extends R2dbcRepository<UserEntity, UUID> {
+    @Query("select id, username, password, salt from users where username = :username")
+    Mono<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    Mono<Boolean> existsByUsername(String username);
+
+    // Sign-up checks for an existing user first, the unique constraint on username only catches concurrent sign-ups
+    @Modifying
+    @Query("insert into users (username, password, salt) values (:username, :password, :salt)")
+    Mono<Integer> insertUser(
+            @Param("username") String username,
+            @Param("password") String password,
+            @Param("salt") String salt);
+
+    @Modifying
+    @Query("update users set password = :password where id = :id")
+    Mono<Integer> updatePassword(@Param("id") UUID id, @Param("password") String password);
+}
@@ -0,0 +1,28 @@
+package org.soup.authservice.reactive.repository.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Table("refresh_token_families")
+public class RefreshTokenFamilyEntity {
+    @Id
+    @Column("family_id")
+    private UUID familyId;
+
+    @Column("user_id")
+    private UUID userId;
+
+    @Column("current_jti")
+    private UUID currentJti;
+
+    @Column("expires_at")
+    private Instant expiresAt;
+
+    private boolean revoked;
+}
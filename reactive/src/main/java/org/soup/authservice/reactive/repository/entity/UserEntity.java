@@ -0,0 +1,25 @@
+package org.soup.authservice.reactive.repository.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Table("users")
+public class UserEntity {
+    @Id
+    private UUID id;
+
+    private String username;
+
+    private String password;
+
+    private String salt;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+}
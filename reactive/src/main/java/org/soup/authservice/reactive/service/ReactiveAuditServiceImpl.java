@@ -0,0 +1,207 @@
+package org.soup.authservice.reactive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.AuditEvent;
+import org.soup.authservice.model.AuditEventType;
+import org.soup.authservice.service.AuditService;
+import org.soup.authservice.utils.RingBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes to the same {@code audit_events} table as the servlet build's AuditServiceImpl. Events go into the same
+ * lock-free {@link RingBuffer}, and a timer drains it in batches with one multi-row insert each over R2DBC. A full
+ * buffer always drops the event, since waiting for room would stall the event loop. The monthly partitions are
+ * created and dropped by the servlet build.
+ */
+@Slf4j
+@Service
+public class ReactiveAuditServiceImpl implements AuditService {
+    private static final int MAX_USERNAME_LENGTH = 255;
+
+    private static final int MAX_REMOTE_ADDRESS_LENGTH = 64;
+
+    private static final String INSERT_PREFIX =
+            "insert into audit_events (occurred_at, event_type, success, user_id, username, remote_address) values ";
+
+    private final boolean enabled;
+
+    private final RingBuffer<AuditEvent> buffer;
+
+    private final int batchSize;
+
+    private final Duration flushInterval;
+
+    private final DatabaseClient databaseClient;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final Counter writtenEvents;
+
+    private final Counter droppedEvents;
+
+    private final Counter failedEvents;
+
+    private final Timer lag;
+
+    private Disposable writer;
+
+    public ReactiveAuditServiceImpl(
+            @Value("${security.audit.enabled}") boolean enabled,
+            @Value("${security.audit.buffer-size}") int bufferSize,
+            @Value("${security.audit.batch-size}") int batchSize,
+            @Value("${security.audit.flush-interval-millis}") long flushIntervalMillis,
+            DatabaseClient databaseClient,
+            MeterRegistry meterRegistry) {
+        // Six parameters per row, Postgres accepts at most 65535 in one statement
+        if (batchSize < 1 || batchSize > 10_000) {
+            throw new IllegalArgumentException("Audit batch size must be between 1 and 10000: " + batchSize);
+        }
+
+        this.enabled = enabled;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMillis);
+        this.databaseClient = databaseClient;
+
+        this.writtenEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "written")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.failedEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.lag = Timer.builder("audit.lag")
+                .description("Time from an audit event to its insert")
+                .register(meterRegistry);
+        Gauge.builder("audit.buffer.pending", buffer, RingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        // A tick that arrives while the previous one is still writing is dropped, so only one drain runs at a time
+        writer = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain(), 1)
+                .subscribe();
+    }
+
+    /**
+     * Stops the timer and writes what is still buffered.
+     */
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+
+        writer.dispose();
+        drain().block(Duration.ofSeconds(5));
+    }
+
+    @Override
+    public void record(AuditEventType type, boolean success, UUID userId, String username, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+
+        AuditEvent event = new AuditEvent(clock.instant(), type, success, userId,
+                truncate(username, MAX_USERNAME_LENGTH), truncate(remoteAddress, MAX_REMOTE_ADDRESS_LENGTH));
+        if (!buffer.offer(event)) {
+            droppedEvents.increment();
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    // Keeps writing full batches until the buffer has been emptied
+    private Mono<Void> drain() {
+        return flush()
+                .expand(count -> count == batchSize ? flush() : Mono.empty())
+                .then();
+    }
+
+    private Mono<Integer> flush() {
+        return Mono.defer(() -> {
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            int count = buffer.drainTo(batch, batchSize);
+            if (count == 0) {
+                return Mono.just(0);
+            }
+
+            return insert(batch)
+                    .then(Mono.fromSupplier(() -> {
+                        Instant now = clock.instant();
+                        for (AuditEvent event : batch) {
+                            lag.record(Duration.between(event.occurredAt(), now));
+                        }
+                        writtenEvents.increment(count);
+                        return count;
+                    }))
+                    .onErrorResume(e -> {
+                        // Not retried, a database that is down would otherwise fill the buffer
+                        failedEvents.increment(count);
+                        log.warn("Failed to write {} audit events", count, e);
+                        return Mono.just(count);
+                    });
+        });
+    }
+
+    private Mono<Void> insert(List<AuditEvent> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:o").append(i).append(", :t").append(i).append(", :s").append(i)
+                    .append(", :i").append(i).append(", :u").append(i).append(", :r").append(i).append(')');
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            AuditEvent event = batch.get(i);
+            spec = spec.bind("o" + i, event.occurredAt())
+                    .bind("t" + i, event.type().name())
+                    .bind("s" + i, event.success());
+            spec = bindNullable(spec, "i" + i, event.userId(), UUID.class);
+            spec = bindNullable(spec, "u" + i, event.username(), String.class);
+            spec = bindNullable(spec, "r" + i, event.remoteAddress(), String.class);
+        }
+        return spec.then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(
+            DatabaseClient.GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+}
@@ -0,0 +1,10 @@
+package org.soup.authservice.reactive.service;
+
+import org.soup.authservice.model.User;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAuthService {
+    Mono<Void> registerUser(String username, String password);
+
+    Mono<User> authenticateUser(String username, String password);
+}
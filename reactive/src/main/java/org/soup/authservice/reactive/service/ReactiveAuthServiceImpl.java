@@ -0,0 +1,113 @@
+package org.soup.authservice.reactive.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.soup.authservice.exception.UserAlreadyExistsException;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.User;
+import org.soup.authservice.reactive.exception.InvalidCredentialsException;
+import org.soup.authservice.reactive.repository.UserRepository;
+import org.soup.authservice.reactive.utils.PostgresInvalidationPublisher;
+import org.soup.authservice.repository.projection.UserCredentials;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+@Service
+public class ReactiveAuthServiceImpl implements ReactiveAuthService {
+    private static final String DUMMY_SALT = RandomStringUtils.randomAlphanumeric(20);
+
+    private final UserRepository userRepository;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final Scheduler hashingScheduler;
+
+    private final PostgresInvalidationPublisher invalidationPublisher;
+
+    // Hashed with the current encoder so a rejected unknown user costs as much as a wrong password
+    private final String dummyPassword;
+
+    public ReactiveAuthServiceImpl(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            @Qualifier("passwordHashingScheduler") Scheduler hashingScheduler,
+            PostgresInvalidationPublisher invalidationPublisher) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.hashingScheduler = hashingScheduler;
+        this.invalidationPublisher = invalidationPublisher;
+        this.dummyPassword = passwordEncoder.encode(DUMMY_SALT + RandomStringUtils.randomAlphanumeric(20));
+    }
+
+    // Queries run on the event loop, only the password encoder runs on the hashing scheduler
+    @Override
+    public Mono<Void> registerUser(String username, String password) {
+        String randomSalt = RandomStringUtils.randomAlphanumeric(20);
+        // Duplicates are rejected before hashing
+        return userRepository.existsByUsername(username)
+                .flatMap(exists -> exists
+                        ? Mono.error(new UserAlreadyExistsException("User already exists"))
+                        : hash(() -> passwordEncoder.encode(randomSalt + password)))
+                .flatMap(encodedPassword -> userRepository.insertUser(username, encodedPassword, randomSalt))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new UserAlreadyExistsException("User already exists"))
+                // The servlet nodes answer a login for a name missing from their username filter without a query
+                .then(Mono.defer(() -> invalidationPublisher.publish(InvalidationType.USERNAME_ADDED, username)));
+    }
+
+    @Override
+    public Mono<User> authenticateUser(String username, String password) {
+        return userRepository.findCredentialsByUsername(username)
+                .flatMap(credentials -> matches(credentials, password))
+                .switchIfEmpty(Mono.defer(() -> rejectAfterDummyHash(password)));
+    }
+
+    private Mono<User> matches(UserCredentials credentials, String password) {
+        String saltedPassword = credentials.salt() + password;
+        String encodedPassword = credentials.password();
+        return hash(() -> passwordEncoder.matches(saltedPassword, encodedPassword))
+                .flatMap(matches -> matches
+                        ? Mono.just(new User(credentials.id(), credentials.username()))
+                        : Mono.error(new InvalidCredentialsException("Invalid username or password")))
+                .doOnNext(user -> {
+                    if (passwordEncoder.upgradeEncoding(encodedPassword)) {
+                        scheduleRehash(user.id(), saltedPassword);
+                    }
+                });
+    }
+
+    private Mono<User> rejectAfterDummyHash(String password) {
+        return hash(() -> passwordEncoder.matches(DUMMY_SALT + password, dummyPassword))
+                .then(Mono.error(new InvalidCredentialsException("Invalid username or password")));
+    }
+
+    /**
+     * Upgrades the stored hash in a task of its own, so the login is answered without waiting for a second hash. The
+     * old hash stays valid, so an upgrade that is dropped or fails is simply retried on the next login.
+     */
+    private void scheduleRehash(UUID id, String saltedPassword) {
+        hash(() -> passwordEncoder.encode(saltedPassword))
+                .flatMap(encodedPassword -> userRepository.updatePassword(id, encodedPassword))
+                .subscribe(ignored -> {
+                }, e -> {
+                    if (e instanceof RejectedExecutionException) {
+                        log.debug("Hashing scheduler is full, skipped upgrading the password hash of user {}", id);
+                    } else {
+                        log.warn("Failed to upgrade password hash of user {}", id, e);
+                    }
+                });
+    }
+
+    private <T> Mono<T> hash(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(hashingScheduler);
+    }
+}
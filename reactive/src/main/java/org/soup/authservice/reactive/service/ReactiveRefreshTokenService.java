@@ -0,0 +1,23 @@
+package org.soup.authservice.reactive.service;
+
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+public interface ReactiveRefreshTokenService {
+    /**
+     * Starts a new token family for a login.
+     *
+     * @return the first refresh token of the family
+     */
+    Mono<String> createFamily(User user, UUID familyId);
+
+    /**
+     * Checks a verified refresh token against its family and rotates it once it is past the rotation threshold.
+     *
+     * @return the next refresh token, or an empty Mono if the presented one stays in use
+     */
+    Mono<String> refresh(TokenClaims claims);
+}
@@ -0,0 +1,141 @@
+package org.soup.authservice.reactive.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.reactive.exception.InvalidTokenException;
+import org.soup.authservice.reactive.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Same rotation rules as the servlet build's RefreshTokenServiceImpl, on the same table, so a family started by one
+ * build can be refreshed by the other.
+ */
+@Slf4j
+@Service
+public class ReactiveRefreshTokenServiceImpl implements ReactiveRefreshTokenService {
+    private final RefreshTokenFamilyRepository familyRepository;
+
+    private final JwtUtils jwtUtils;
+
+    private final long refreshTokenExpirationMillis;
+
+    private final double rotationThreshold;
+
+    private final Clock clock;
+
+    private final Counter reuseDetections;
+
+    private final Counter rotatedRefreshes;
+
+    private final Counter keptRefreshes;
+
+    @Autowired
+    public ReactiveRefreshTokenServiceImpl(
+            RefreshTokenFamilyRepository familyRepository,
+            JwtUtils jwtUtils,
+            MeterRegistry meterRegistry,
+            @Value("${security.refresh-token.expirationMillis}") long refreshTokenExpirationMillis,
+            @Value("${security.refresh-token.rotation-threshold}") double rotationThreshold) {
+        this(familyRepository, jwtUtils, meterRegistry, refreshTokenExpirationMillis, rotationThreshold,
+                Clock.systemUTC());
+    }
+
+    ReactiveRefreshTokenServiceImpl(
+            RefreshTokenFamilyRepository familyRepository,
+            JwtUtils jwtUtils,
+            MeterRegistry meterRegistry,
+            long refreshTokenExpirationMillis,
+            double rotationThreshold,
+            Clock clock) {
+        if (rotationThreshold < 0 || rotationThreshold > 1) {
+            throw new IllegalArgumentException("Refresh token rotation threshold must be between 0 and 1: "
+                    + rotationThreshold);
+        }
+
+        this.familyRepository = familyRepository;
+        this.jwtUtils = jwtUtils;
+        this.refreshTokenExpirationMillis = refreshTokenExpirationMillis;
+        this.rotationThreshold = rotationThreshold;
+        this.clock = clock;
+        this.reuseDetections = Counter.builder("refresh.token.reuse")
+                .description("Consumed refresh tokens presented again, each revoking its family")
+                .register(meterRegistry);
+        this.rotatedRefreshes = Counter.builder("refresh.token.refreshes")
+                .description("Refreshes by whether the refresh token was rotated or stayed in use")
+                .tag("rotated", "true")
+                .register(meterRegistry);
+        this.keptRefreshes = Counter.builder("refresh.token.refreshes")
+                .description("Refreshes by whether the refresh token was rotated or stayed in use")
+                .tag("rotated", "false")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<String> createFamily(User user, UUID familyId) {
+        UUID tokenId = UUID.randomUUID();
+        return familyRepository.insertFamily(familyId, user.id(), tokenId, expiresAt())
+                .then(Mono.fromSupplier(() -> jwtUtils.generateRefreshToken(
+                        user, familyId, tokenId, refreshTokenExpirationMillis)));
+    }
+
+    @Override
+    public Mono<String> refresh(TokenClaims claims) {
+        if (!claims.isRefreshToken()) {
+            return Mono.error(new InvalidTokenException("Refresh token invalid"));
+        }
+
+        if (isRotationDue(claims)) {
+            UUID nextTokenId = UUID.randomUUID();
+            return familyRepository.rotate(
+                            claims.familyId(), claims.tokenId(), nextTokenId, expiresAt(), clock.instant())
+                    .flatMap(rotated -> rotated == 0
+                            ? reuseDetected(claims)
+                            : Mono.fromSupplier(() -> jwtUtils.generateRefreshToken(claims.toUser(),
+                            claims.familyId(), nextTokenId, refreshTokenExpirationMillis)))
+                    .doOnNext(next -> rotatedRefreshes.increment());
+        }
+
+        // A fresh token is not consumed, but reuse of one that was already rotated away is still caught here
+        return familyRepository.isCurrent(claims.familyId(), claims.tokenId(), clock.instant())
+                .flatMap(current -> current
+                        ? Mono.fromRunnable(keptRefreshes::increment)
+                        : reuseDetected(claims));
+    }
+
+    private boolean isRotationDue(TokenClaims claims) {
+        if (claims.issuedAt() == null || claims.expiresAt() == null) {
+            return true;
+        }
+
+        long lifetimeMillis = Duration.between(claims.issuedAt(), claims.expiresAt()).toMillis();
+        long ageMillis = Duration.between(claims.issuedAt(), clock.instant()).toMillis();
+        return ageMillis >= lifetimeMillis * rotationThreshold;
+    }
+
+    // The token verified but is not the family's current one: it was consumed before, or the family is gone
+    private <T> Mono<T> reuseDetected(TokenClaims claims) {
+        return familyRepository.revoke(claims.familyId())
+                .then(Mono.error(() -> {
+                    reuseDetections.increment();
+                    log.warn("Refresh token reuse detected, revoked token family {} of user {}",
+                            claims.familyId(), claims.id());
+                    return new InvalidTokenException("Refresh token revoked");
+                }));
+    }
+
+    private Instant expiresAt() {
+        return clock.instant().plusMillis(refreshTokenExpirationMillis);
+    }
+}
@@ -0,0 +1,20 @@
+package org.soup.authservice.reactive.service;
+
+import org.soup.authservice.model.User;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveTokenService {
+    /**
+     * @return the {@code Set-Cookie} headers of a new access token and a new refresh token family
+     */
+    Mono<HttpHeaders> createAuthCookieHeaders(User user);
+
+    /**
+     * Adds the {@code Set-Cookie} headers of a new access token, and of the next refresh token if it was rotated, to
+     * {@code headers}.
+     *
+     * @return the user the refresh token was issued to
+     */
+    Mono<User> refreshTokens(String refreshToken, HttpHeaders headers);
+}
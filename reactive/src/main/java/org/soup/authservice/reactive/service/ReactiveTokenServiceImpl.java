@@ -0,0 +1,80 @@
+package org.soup.authservice.reactive.service;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.reactive.exception.InvalidTokenException;
+import org.soup.authservice.reactive.utils.ReactiveAuthCookies;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class ReactiveTokenServiceImpl implements ReactiveTokenService {
+    private final JwtUtils jwtUtils;
+
+    private final ReactiveRefreshTokenService refreshTokenService;
+
+    private final ReactiveAuthCookies authCookies;
+
+    private final long accessTokenExpirationMillis;
+
+    public ReactiveTokenServiceImpl(
+            JwtUtils jwtUtils,
+            ReactiveRefreshTokenService refreshTokenService,
+            ReactiveAuthCookies authCookies,
+            @Value("${security.access-token.expirationMillis}") long accessTokenExpirationMillis) {
+        this.jwtUtils = jwtUtils;
+        this.refreshTokenService = refreshTokenService;
+        this.authCookies = authCookies;
+        this.accessTokenExpirationMillis = accessTokenExpirationMillis;
+    }
+
+    @Override
+    public Mono<HttpHeaders> createAuthCookieHeaders(User user) {
+        UUID familyId = UUID.randomUUID();
+        return refreshTokenService.createFamily(user, familyId)
+                .map(refreshToken -> {
+                    HttpHeaders headers = accessCookieHeaders(user, familyId);
+                    headers.add(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(refreshToken));
+                    return headers;
+                });
+    }
+
+    // Signing and verifying take microseconds and the verified token cache is in memory, so both stay on the event loop
+    @Override
+    public Mono<User> refreshTokens(String refreshToken, HttpHeaders headers) {
+        if (refreshToken == null) {
+            return Mono.error(new InvalidTokenException("Refresh token not found"));
+        }
+
+        TokenClaims claims;
+        try {
+            claims = jwtUtils.verifyAndDecode(refreshToken);
+        } catch (JWTVerificationException e) {
+            return Mono.error(new InvalidTokenException("Refresh token invalid"));
+        }
+
+        // Only a refresh token past the rotation threshold is replaced, a fresher one keeps its cookie
+        return refreshTokenService.refresh(claims)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .map(next -> {
+                    headers.addAll(accessCookieHeaders(claims.toUser(), claims.familyId()));
+                    next.ifPresent(token -> headers.add(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(token)));
+                    return claims.toUser();
+                });
+    }
+
+    private HttpHeaders accessCookieHeaders(User user, UUID familyId) {
+        HttpHeaders headers = new HttpHeaders();
+        String accessToken = jwtUtils.generateToken(user, familyId, accessTokenExpirationMillis);
+        headers.add(HttpHeaders.SET_COOKIE, authCookies.accessCookie(accessToken));
+        return headers;
+    }
+}
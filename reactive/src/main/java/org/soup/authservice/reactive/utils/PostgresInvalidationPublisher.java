@@ -0,0 +1,75 @@
+package org.soup.authservice.reactive.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.InvalidationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Sends changes on the channel the servlet build's PostgresInvalidationBus listens on, in the same payload format, so
+ * that the servlet nodes apply them to their in-memory state. This build keeps no such state itself and never listens.
+ */
+@Slf4j
+@Component
+public class PostgresInvalidationPublisher {
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    // Never matches a listening node, so every node applies the events
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final boolean enabled;
+
+    private final String channel;
+
+    private final DatabaseClient databaseClient;
+
+    private final Counter sentEvents;
+
+    public PostgresInvalidationPublisher(
+            @Value("${security.invalidation.enabled}") boolean enabled,
+            @Value("${security.invalidation.channel}") String channel,
+            DatabaseClient databaseClient,
+            MeterRegistry meterRegistry) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+
+        this.enabled = enabled;
+        this.channel = channel;
+        this.databaseClient = databaseClient;
+        this.sentEvents = Counter.builder("invalidation.events")
+                .description("Invalidation events exchanged with other nodes")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends one event right away. Never fails: the change is already stored, and the servlet nodes pick it up on
+     * their next resync or restart if the notification is lost.
+     */
+    public Mono<Void> publish(InvalidationType type, String key) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+
+        String payload = nodeId + '\n' + type.code() + URLEncoder.encode(key, StandardCharsets.UTF_8);
+        return databaseClient.sql("select pg_notify(:channel, :payload)")
+                .bind("channel", channel)
+                .bind("payload", payload)
+                .then()
+                .doOnSuccess(ignored -> sentEvents.increment())
+                .onErrorResume(e -> {
+                    log.warn("Failed to send {} invalidation for {}", type, key, e);
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,58 @@
+package org.soup.authservice.reactive.utils;
+
+import org.soup.authservice.utils.AuthCookies;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the same {@code Set-Cookie} values as {@link AuthCookies}, which cannot be used here because it reads cookies
+ * from a servlet request. Names, paths and attributes have to stay the same so that either build accepts the cookies
+ * of the other.
+ */
+@Component
+public class ReactiveAuthCookies {
+    // Sent only to /refresh, so the long-lived token does not travel with every request
+    private static final String REFRESH_TOKEN_PATH = "/refresh";
+
+    private final String accessCookieSuffix;
+
+    private final String refreshCookieSuffix;
+
+    public ReactiveAuthCookies(
+            @Value("${security.access-token.expirationMillis}") long accessTokenExpirationMillis,
+            @Value("${security.refresh-token.expirationMillis}") long refreshTokenExpirationMillis,
+            @Value("${security.cookie.secure}") boolean secure,
+            @Value("${security.cookie.same-site}") String sameSite) {
+        String attributes = (secure ? "; Secure" : "") + "; HttpOnly; SameSite=" + sameSite;
+        this.accessCookieSuffix = "; Path=/; Max-Age="
+                + TimeUnit.MILLISECONDS.toSeconds(accessTokenExpirationMillis) + attributes;
+        this.refreshCookieSuffix = "; Path=" + REFRESH_TOKEN_PATH + "; Max-Age="
+                + TimeUnit.MILLISECONDS.toSeconds(refreshTokenExpirationMillis) + attributes;
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value carrying the access token
+     */
+    public String accessCookie(String token) {
+        return AuthCookies.ACCESS_TOKEN_NAME + "=" + token + accessCookieSuffix;
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value carrying the refresh token
+     */
+    public String refreshCookie(String token) {
+        return AuthCookies.REFRESH_TOKEN_NAME + "=" + token + refreshCookieSuffix;
+    }
+
+    /**
+     * @return the value of the named cookie, or {@code null} if the request does not have it
+     */
+    public static String read(ServerRequest request, String name) {
+        HttpCookie cookie = request.cookies().getFirst(name);
+        return cookie == null ? null : cookie.getValue();
+    }
+}
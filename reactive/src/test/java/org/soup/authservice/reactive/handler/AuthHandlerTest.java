@@ -0,0 +1,257 @@
+package org.soup.authservice.reactive.handler;
+
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Wrapped;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the local Postgres, whose schema the servlet build's Liquibase changelog has created.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "security.password.cost=4",
+        "security.cookie.secure=false",
+        "security.rate-limit.username.capacity=3",
+        "security.rate-limit.ip.capacity=1000",
+        "security.audit.flush-interval-millis=10",
+        "management.server.port=0"})
+class AuthHandlerTest {
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    @DisplayName("Should create a user and answer 201")
+    void signUp_shouldCreateUser() {
+        // Act & Assert
+        signUp(newUsername()).expectStatus().isCreated();
+    }
+
+    @Test
+    @DisplayName("Should reject a sign-up with a taken username with 400")
+    void signUp_shouldRejectDuplicate() {
+        // Arrange
+        String username = newUsername();
+        signUp(username).expectStatus().isCreated();
+
+        // Act & Assert
+        signUp(username).expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should accept the credentials as form parameters as well")
+    void signUp_shouldReadFormBody() {
+        // Act & Assert
+        webTestClient.post().uri("/sign-up")
+                .header(HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded")
+                .bodyValue("user=" + newUsername() + "&password=" + PASSWORD)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    @DisplayName("Should reject a sign-up without a password with 400")
+    void signUp_shouldRejectMissingParameter() {
+        // Act & Assert
+        webTestClient.post().uri("/sign-up?user=" + newUsername())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should announce a new username on the invalidation channel of the servlet nodes")
+    void signUp_shouldNotifyUsernameAdded() throws Exception {
+        // Arrange
+        String username = newUsername();
+        Connection pooled = Mono.from(connectionFactory.create()).block();
+        PostgresqlConnection connection = (PostgresqlConnection) ((Wrapped<?>) pooled).unwrap();
+        try {
+            execute(connection, "listen soup_invalidation");
+            CompletableFuture<String> payload = connection.getNotifications()
+                    .map(Notification::getParameter)
+                    .filter(parameter -> parameter.endsWith("\nn" + username))
+                    .next()
+                    .toFuture();
+
+            // Act
+            signUp(username).expectStatus().isCreated();
+
+            // Assert
+            assertThat(payload.get(5, TimeUnit.SECONDS)).hasLineCount(2);
+        } finally {
+            execute(connection, "unlisten soup_invalidation");
+            Mono.from(pooled.close()).block();
+        }
+    }
+
+    @Test
+    @DisplayName("Should record a sign-up in the audit log")
+    void signUp_shouldRecordAuditEvent() throws Exception {
+        // Arrange
+        String username = newUsername();
+
+        // Act
+        signUp(username).expectStatus().isCreated();
+
+        // Assert
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long events = 0;
+        while (events == 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(20);
+            events = databaseClient.sql(
+                            "select count(*) from audit_events where username = :username and event_type = 'SIGN_UP'"
+                                    + " and success")
+                    .bind("username", username)
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .block();
+        }
+        assertThat(events).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should set the access and the refresh cookie on login")
+    void auth_shouldSetBothCookies() {
+        // Arrange
+        String username = newUsername();
+        signUp(username).expectStatus().isCreated();
+
+        // Act
+        List<String> cookies = login(username, PASSWORD)
+                .expectStatus().isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .get(HttpHeaders.SET_COOKIE);
+
+        // Assert
+        assertThat(cookies).hasSize(2);
+        assertThat(cookies).anySatisfy(cookie -> assertThat(cookie)
+                .startsWith("Soup-Access-Token=").contains("Path=/;").contains("HttpOnly"));
+        assertThat(cookies).anySatisfy(cookie -> assertThat(cookie)
+                .startsWith("Soup-Refresh-Token=").contains("Path=/refresh;").contains("HttpOnly"));
+    }
+
+    @Test
+    @DisplayName("Should reject a wrong password with 400")
+    void auth_shouldRejectWrongPassword() {
+        // Arrange
+        String username = newUsername();
+        signUp(username).expectStatus().isCreated();
+
+        // Act & Assert
+        login(username, "wrong-password").expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After once a username has used up its attempts")
+    void auth_shouldRejectWhenRateLimited() {
+        // Arrange
+        String username = newUsername();
+        signUp(username).expectStatus().isCreated();
+        for (int i = 0; i < 3; i++) {
+            login(username, "wrong-password").expectStatus().isBadRequest();
+        }
+
+        // Act & Assert
+        login(username, PASSWORD)
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown user with 400")
+    void auth_shouldRejectUnknownUser() {
+        // Act & Assert
+        login(newUsername(), PASSWORD).expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should issue a new access token for a valid refresh token")
+    void refresh_shouldIssueAccessToken() {
+        // Arrange
+        String username = newUsername();
+        signUp(username).expectStatus().isCreated();
+        String refreshCookie = login(username, PASSWORD)
+                .expectStatus().isOk()
+                .returnResult(Void.class)
+                .getResponseCookies()
+                .getFirst("Soup-Refresh-Token")
+                .getValue();
+
+        // Act
+        List<String> cookies = webTestClient.post().uri("/refresh")
+                .cookie("Soup-Refresh-Token", refreshCookie)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .get(HttpHeaders.SET_COOKIE);
+
+        // Assert
+        assertThat(cookies).anySatisfy(cookie -> assertThat(cookie).startsWith("Soup-Access-Token="));
+    }
+
+    @Test
+    @DisplayName("Should reject a refresh without a cookie with 403")
+    void refresh_shouldRejectMissingCookie() {
+        // Act & Assert
+        webTestClient.post().uri("/refresh")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    @DisplayName("Should reject a refresh with a forged cookie with 403")
+    void refresh_shouldRejectInvalidCookie() {
+        // Act & Assert
+        webTestClient.post().uri("/refresh")
+                .cookie("Soup-Refresh-Token", "not-a-token")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private WebTestClient.ResponseSpec signUp(String username) {
+        return webTestClient.post().uri("/sign-up?user=" + username + "&password=" + PASSWORD).exchange();
+    }
+
+    private WebTestClient.ResponseSpec login(String username, String password) {
+        return webTestClient.post().uri("/auth?user=" + username + "&password=" + password).exchange();
+    }
+
+    private static void execute(PostgresqlConnection connection, String sql) {
+        Flux.from(connection.createStatement(sql).execute())
+                .flatMap(Result::getRowsUpdated)
+                .blockLast(Duration.ofSeconds(5));
+    }
+
+    private static String newUsername() {
+        return "reactive-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,156 @@
+package org.soup.authservice.reactive.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.reactive.exception.InvalidTokenException;
+import org.soup.authservice.reactive.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.utils.JwtUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReactiveRefreshTokenServiceImplTest {
+    private static final long EXPIRATION_MILLIS = 60000;
+    private static final double ROTATION_THRESHOLD = 0.5;
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    AutoCloseable openMocks;
+
+    @Mock
+    private RefreshTokenFamilyRepository familyRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ReactiveRefreshTokenServiceImpl refreshTokenService;
+
+    private final User user = new User(UUID.randomUUID(), "user");
+
+    @BeforeEach
+    void setUp() {
+        openMocks = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = new ReactiveRefreshTokenServiceImpl(familyRepository, jwtUtils, meterRegistry,
+                EXPIRATION_MILLIS, ROTATION_THRESHOLD, Clock.fixed(NOW, ZoneOffset.UTC));
+        when(familyRepository.revoke(any())).thenReturn(Mono.just(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        openMocks.close();
+    }
+
+    @Test
+    @DisplayName("Should store a new family and issue its first token on login")
+    void createFamily_shouldInsertFamilyAndIssueToken() {
+        // Arrange
+        UUID familyId = UUID.randomUUID();
+        when(familyRepository.insertFamily(eq(familyId), eq(user.id()), any(), eq(NOW.plusMillis(EXPIRATION_MILLIS))))
+                .thenReturn(Mono.just(1));
+        when(jwtUtils.generateRefreshToken(eq(user), eq(familyId), any(), eq(EXPIRATION_MILLIS)))
+                .thenReturn("refresh");
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.createFamily(user, familyId))
+                .expectNext("refresh")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should keep a fresh token without writing to the database")
+    void refresh_shouldKeepFreshToken() {
+        // Arrange
+        TokenClaims claims = claims(NOW.minusSeconds(10));
+        when(familyRepository.isCurrent(claims.familyId(), claims.tokenId(), NOW)).thenReturn(Mono.just(true));
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.refresh(claims)).verifyComplete();
+        verify(familyRepository, never()).rotate(any(), any(), any(), any(), any());
+        assertThat(refreshes("false")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should rotate a token past the rotation threshold")
+    void refresh_shouldRotateOldToken() {
+        // Arrange
+        TokenClaims claims = claims(NOW.minusSeconds(40));
+        when(familyRepository.rotate(eq(claims.familyId()), eq(claims.tokenId()), any(), any(), eq(NOW)))
+                .thenReturn(Mono.just(1));
+        when(jwtUtils.generateRefreshToken(eq(user), eq(claims.familyId()), any(), eq(EXPIRATION_MILLIS)))
+                .thenReturn("next");
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.refresh(claims))
+                .expectNext("next")
+                .verifyComplete();
+        assertThat(refreshes("true")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should revoke the family when a rotated token is presented again")
+    void refresh_shouldRevokeFamilyOnReuse() {
+        // Arrange
+        TokenClaims claims = claims(NOW.minusSeconds(40));
+        when(familyRepository.rotate(any(), any(), any(), any(), any())).thenReturn(Mono.just(0));
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.refresh(claims))
+                .expectError(InvalidTokenException.class)
+                .verify();
+        verify(familyRepository, times(1)).revoke(claims.familyId());
+        assertThat(meterRegistry.get("refresh.token.reuse").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should revoke the family when a fresh token is no longer current")
+    void refresh_shouldRevokeFamily_whenFreshTokenNotCurrent() {
+        // Arrange
+        TokenClaims claims = claims(NOW.minusSeconds(10));
+        when(familyRepository.isCurrent(any(), any(), any())).thenReturn(Mono.just(false));
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.refresh(claims))
+                .expectError(InvalidTokenException.class)
+                .verify();
+        verify(familyRepository, times(1)).revoke(claims.familyId());
+    }
+
+    @Test
+    @DisplayName("Should reject an access token presented as a refresh token")
+    void refresh_shouldRejectAccessToken() {
+        // Arrange
+        TokenClaims claims = new TokenClaims(user.id(), user.username(), TokenClaims.ACCESS, null, UUID.randomUUID(),
+                NOW, NOW.plusMillis(EXPIRATION_MILLIS));
+
+        // Act & Assert
+        StepVerifier.create(refreshTokenService.refresh(claims))
+                .expectError(InvalidTokenException.class)
+                .verify();
+        verifyNoInteractions(familyRepository);
+    }
+
+    private TokenClaims claims(Instant issuedAt) {
+        return new TokenClaims(user.id(), user.username(), TokenClaims.REFRESH, UUID.randomUUID(), UUID.randomUUID(),
+                issuedAt, issuedAt.plusMillis(EXPIRATION_MILLIS));
+    }
+
+    private double refreshes(String rotated) {
+        return meterRegistry.get("refresh.token.refreshes").tag("rotated", rotated).counter().count();
+    }
+}
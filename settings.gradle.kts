@@ -1 +1,5 @@
 rootProject.name = "auth-service"
+
+// Non-blocking WebFlux and R2DBC variant of the service, sharing the token and password code of the root project
+include("reactive")
+project(":reactive").name = "auth-service-reactive"
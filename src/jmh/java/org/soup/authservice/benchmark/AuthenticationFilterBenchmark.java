@@ -0,0 +1,108 @@
+package org.soup.authservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.config.JwtAuthenticationFilter;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.utils.AuthCookies;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.RevocationList;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one protected request in JwtAuthenticationFilter, with and without the verified token cache,
+ * and of rejecting a malformed token. Every authenticated request is also checked against a revocation list holding
+ * ten thousand revoked tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AuthenticationFilterBenchmark {
+    private static final String SECRET = "over-salted-soup";
+
+    private JwtAuthenticationFilter cachedFilter;
+
+    private JwtAuthenticationFilter uncachedFilter;
+
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtils cached =
+                new JwtUtils(JwtKeys.hmac(SECRET), new VerifiedTokenCache(true, 1000, meterRegistry), meterRegistry);
+        JwtUtils uncached =
+                new JwtUtils(JwtKeys.hmac(SECRET), new VerifiedTokenCache(false, 0, meterRegistry), meterRegistry);
+        TokenRevocationService revocationService = new InMemoryRevocationService(revocationList());
+        cachedFilter = new JwtAuthenticationFilter(cached, revocationService, Set.of());
+        uncachedFilter = new JwtAuthenticationFilter(uncached, revocationService, Set.of());
+        accessToken = cached.generateToken(new User(UUID.randomUUID(), "user"), TimeUnit.DAYS.toMillis(1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object cached() throws Exception {
+        return filter(cachedFilter, accessToken);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object uncached() throws Exception {
+        return filter(uncachedFilter, accessToken);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object malformed() throws Exception {
+        return filter(cachedFilter, "malformed");
+    }
+
+    // Ten thousand revoked tokens spread over a day of expiry buckets, as after a burst of logouts
+    private static RevocationList revocationList() {
+        RevocationList revocationList = new RevocationList(TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(30));
+        Instant now = Instant.now();
+        for (int i = 0; i < 10_000; i++) {
+            revocationList.revokeToken(UUID.randomUUID(), now.plusSeconds(i * 8L));
+        }
+        return revocationList;
+    }
+
+    private static Object filter(JwtAuthenticationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/me");
+        request.setCookies(new Cookie(AuthCookies.ACCESS_TOKEN_NAME, token));
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private record InMemoryRevocationService(RevocationList revocationList) implements TokenRevocationService {
+        @Override
+        public boolean isRevoked(TokenClaims claims) {
+            return revocationList.isRevoked(claims);
+        }
+
+        @Override
+        public void revokeToken(TokenClaims claims) {
+            revocationList.revokeToken(claims.tokenId(), claims.expiresAt());
+        }
+
+        @Override
+        public void revokeUser(UUID userId) {
+            revocationList.revokeIssuedBefore(userId, Instant.now());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.soup.authservice.benchmark;
+
+import org.soup.authservice.AuthServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the application on a random port against an in-memory H2 database in PostgreSQL mode, so benchmarks that touch the
+ * repositories run without a Postgres instance. The schema mirrors the Liquibase changelog.
+ */
+public final class BenchmarkApplication {
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("spring.datasource.url",
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        arguments.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        arguments.put("spring.datasource.username", "sa");
+        arguments.put("spring.datasource.password", "");
+        arguments.put("spring.liquibase.enabled", "false");
+        arguments.put("spring.jpa.hibernate.ddl-auto", "none");
+        arguments.put("spring.sql.init.mode", "always");
+        arguments.put("spring.sql.init.schema-locations", "classpath:benchmark-schema.sql");
+        arguments.put("server.port", "0");
+        arguments.put("management.server.port", "0");
+        arguments.put("security.password.cost", "4");
+        arguments.put("security.invalidation.enabled", "false");
+        // H2 has no declarative partitioning for the audit log table
+        arguments.put("security.audit.enabled", "false");
+        // JMH warms up the benchmarked paths itself
+        arguments.put("startup.warm-up.enabled", "false");
+        arguments.put("logging.level.root", "WARN");
+        arguments.putAll(properties);
+
+        // Passed as command line arguments so they take precedence over application.yaml
+        String[] args = arguments.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(AuthServiceApplication.class).run(args);
+    }
+}
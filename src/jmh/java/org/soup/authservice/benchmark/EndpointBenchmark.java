@@ -0,0 +1,130 @@
+package org.soup.authservice.benchmark;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.utils.AuthCookies;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Whole requests through the security filter chain, the controllers and the services against the embedded database,
+ * without the network and Tomcat. Rate limiting is off and passwords are hashed at the lowest cost, so {@code auth}
+ * measures everything around hashing. MockHttpServletResponse parses every {@code Set-Cookie} header it is given, so
+ * the numbers are only comparable with each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EndpointBenchmark {
+    private static final String CLIENT_ID = "gateway";
+    private static final String CLIENT_SECRET = "gateway-secret";
+    private static final String CLIENT_AUTHORIZATION = "Basic " + Base64.getEncoder()
+            .encodeToString((CLIENT_ID + ":" + CLIENT_SECRET).getBytes(StandardCharsets.UTF_8));
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "security.rate-limit.enabled", "false",
+                "security.introspection.client-id", CLIENT_ID,
+                "security.introspection.client-secret", CLIENT_SECRET));
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * A user of its own per thread, logged in once.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        private final String username = UUID.randomUUID().toString();
+
+        private String accessToken;
+
+        private String refreshToken;
+
+        @Setup(Level.Trial)
+        public void logIn(EndpointBenchmark benchmark) throws Exception {
+            benchmark.perform(post("/sign-up").param("user", username).param("password", "password"));
+            MockHttpServletResponse response =
+                    benchmark.perform(post("/auth").param("user", username).param("password", "password"));
+            accessToken = response.getCookie(AuthCookies.ACCESS_TOKEN_NAME).getValue();
+            refreshToken = response.getCookie(AuthCookies.REFRESH_TOKEN_NAME).getValue();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object auth(Session session) throws Exception {
+        return perform(post("/auth").param("user", session.username).param("password", "password"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object refresh(Session session) throws Exception {
+        MockHttpServletResponse response = perform(post("/refresh")
+                .cookie(new Cookie(AuthCookies.REFRESH_TOKEN_NAME, session.refreshToken)));
+        Cookie rotated = response.getCookie(AuthCookies.REFRESH_TOKEN_NAME);
+        if (rotated != null) {
+            session.refreshToken = rotated.getValue();
+        }
+        return response;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object introspect(Session session) throws Exception {
+        return perform(post("/introspect")
+                .header(HttpHeaders.AUTHORIZATION, CLIENT_AUTHORIZATION)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .param("token", session.accessToken));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object jwks() throws Exception {
+        return perform(get("/.well-known/jwks.json"));
+    }
+
+    private MockHttpServletResponse perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        // Login and sign-up complete on the hashing pool and are dispatched again once done
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+
+        MockHttpServletResponse response = result.getResponse();
+        if (response.getStatus() >= 400) {
+            throw new IllegalStateException(result.getRequest().getRequestURI() + " failed with "
+                    + response.getStatus() + ": " + response.getContentAsString());
+        }
+        return response;
+    }
+}
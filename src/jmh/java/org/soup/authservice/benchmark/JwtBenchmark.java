@@ -0,0 +1,64 @@
+package org.soup.authservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.model.User;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtils signing and verification for each supported algorithm. {@code verify} always checks the signature,
+ * {@code verifyCached} is answered by the verified token cache as repeated requests with the same token are.
+ * RS256 and ES256 sign with an ephemeral key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtBenchmark {
+    private static final long EXPIRATION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @Param({JwtKeys.HS256, JwtKeys.RS256, JwtKeys.ES256})
+    public String algorithm;
+
+    private JwtUtils uncached;
+
+    private JwtUtils cached;
+
+    private User user;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtKeys keys = new JwtKeys(algorithm, "over-salted-soup", new String[0], "", new String[0], 0, 0,
+                TimeUnit.DAYS.toMillis(30), "", new DefaultResourceLoader());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        uncached = new JwtUtils(keys, new VerifiedTokenCache(false, 0, meterRegistry), meterRegistry);
+        cached = new JwtUtils(keys, new VerifiedTokenCache(true, 1000, meterRegistry), meterRegistry);
+        user = new User(UUID.randomUUID(), "user");
+        token = uncached.generateToken(user, UUID.randomUUID(), EXPIRATION_MILLIS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sign() {
+        return uncached.generateToken(user, UUID.randomUUID(), EXPIRATION_MILLIS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object verify() {
+        return uncached.verifyAndDecode(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object verifyCached() {
+        return cached.verifyAndDecode(token);
+    }
+}
@@ -0,0 +1,51 @@
+package org.soup.authservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.repository.UserRepository;
+import org.soup.authservice.service.AuthService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The database lookup done by /auth against the embedded database. {@code entity} is the previous findByUsername,
+ * {@code projection} reads only the credential columns into a record. Run with {@code -PjmhProfilers=gc} to compare
+ * allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LoginLookupBenchmark {
+    private ConfigurableApplicationContext context;
+
+    private UserRepository userRepository;
+
+    private String username;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        userRepository = context.getBean(UserRepository.class);
+        username = UUID.randomUUID().toString();
+        context.getBean(AuthService.class).registerUser(username, "password").join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object entity() {
+        return userRepository.findByUsername(username).orElseThrow();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object projection() {
+        return userRepository.findCredentialsByUsername(username).orElseThrow();
+    }
+}
@@ -0,0 +1,46 @@
+package org.soup.authservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.utils.PasswordHashCalibrator;
+import org.soup.authservice.utils.PepperedPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The salted and peppered password encoder as SecurityConfig builds it, for each algorithm at several costs. The cost
+ * is the BCrypt strength or the number of Argon2id iterations. Compare with the {@code PASSWORD_HASH_TARGET_MILLIS}
+ * the service calibrates to at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordEncoderBenchmark {
+    private static final String SALTED_PASSWORD = "Xq3rT9vLm2pK8sWz4bNc" + "password";
+
+    @Param({"bcrypt:4", "bcrypt:10", "bcrypt:12", "argon2:2", "argon2:4"})
+    public String encoder;
+
+    private PasswordEncoder passwordEncoder;
+
+    private String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        String[] algorithmAndCost = encoder.split(":");
+        PasswordHashCalibrator calibrator =
+                new PasswordHashCalibrator(algorithmAndCost[0], 0, Integer.parseInt(algorithmAndCost[1]));
+        passwordEncoder = new PepperedPasswordEncoder("very-over-salted-soup", calibrator.createEncoder());
+        encodedPassword = passwordEncoder.encode(SALTED_PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(SALTED_PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(SALTED_PASSWORD, encodedPassword);
+    }
+}
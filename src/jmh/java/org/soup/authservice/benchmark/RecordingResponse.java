@@ -0,0 +1,60 @@
+package org.soup.authservice.benchmark;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.apache.tomcat.util.http.Rfc6265CookieProcessor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response that records {@code Set-Cookie} headers the way Tomcat does: a header is kept as is, a {@link Cookie} is
+ * formatted by the cookie processor. MockHttpServletResponse parses every {@code Set-Cookie} header back into a cookie,
+ * which would dominate any measurement of the cookie path.
+ */
+final class RecordingResponse extends HttpServletResponseWrapper {
+    private static final Rfc6265CookieProcessor COOKIE_PROCESSOR = new Rfc6265CookieProcessor();
+
+    private static final MockHttpServletResponse UNUSED = new MockHttpServletResponse();
+
+    private final HttpServletRequest request;
+
+    private final List<String> setCookieHeaders = new ArrayList<>(2);
+
+    RecordingResponse(HttpServletRequest request) {
+        super(UNUSED);
+        this.request = request;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        setCookieHeaders.add(COOKIE_PROCESSOR.generateHeader(cookie, request));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.SET_COOKIE.equalsIgnoreCase(name)) {
+            setCookieHeaders.add(value);
+        }
+    }
+
+    List<String> setCookieHeaders() {
+        return setCookieHeaders;
+    }
+
+    /**
+     * @return the value of the named cookie set on this response, or {@code null} if it was not set
+     */
+    String cookieValue(String name) {
+        for (String header : setCookieHeaders) {
+            if (header.startsWith(name) && header.charAt(name.length()) == '=') {
+                int end = header.indexOf(';');
+                return header.substring(name.length() + 1, end < 0 ? header.length() : end);
+            }
+        }
+        return null;
+    }
+}
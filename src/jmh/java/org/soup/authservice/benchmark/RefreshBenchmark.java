@@ -0,0 +1,79 @@
+package org.soup.authservice.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.VerifiedTokenCache;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token work done by a single /refresh call: verify the refresh token, then sign a new access and refresh token.
+ * {@code legacy} reproduces the previous JwtUtils behaviour (new Algorithm and JWTVerifier per call, three
+ * verifications per refresh), {@code cached} uses the shared verifier and a single verifyAndDecode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RefreshBenchmark {
+    private static final String SECRET = "over-salted-soup";
+    private static final long ACCESS_TOKEN_EXPIRATION_MILLIS = 86400000L;
+    private static final long REFRESH_TOKEN_EXPIRATION_MILLIS = 2592000000L;
+
+    private JwtUtils jwtUtils;
+
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtUtils = new JwtUtils(JwtKeys.hmac(SECRET), new VerifiedTokenCache(false, 0, meterRegistry), meterRegistry);
+        refreshToken = jwtUtils.generateToken(new User(UUID.randomUUID(), "user"), REFRESH_TOKEN_EXPIRATION_MILLIS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void legacy(Blackhole blackhole) {
+        JWT.require(Algorithm.HMAC256(SECRET)).build().verify(refreshToken);
+
+        JWTVerifier idVerifier = JWT.require(Algorithm.HMAC256(SECRET)).build();
+        UUID id = UUID.fromString(idVerifier.verify(refreshToken).getClaim("id").asString());
+
+        JWTVerifier usernameVerifier = JWT.require(Algorithm.HMAC256(SECRET)).build();
+        DecodedJWT jwt = usernameVerifier.verify(refreshToken);
+        User user = new User(id, jwt.getSubject());
+
+        blackhole.consume(legacySign(user, ACCESS_TOKEN_EXPIRATION_MILLIS));
+        blackhole.consume(legacySign(user, REFRESH_TOKEN_EXPIRATION_MILLIS));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void cached(Blackhole blackhole) {
+        TokenClaims claims = jwtUtils.verifyAndDecode(refreshToken);
+        User user = claims.toUser();
+
+        blackhole.consume(jwtUtils.generateToken(user, ACCESS_TOKEN_EXPIRATION_MILLIS));
+        blackhole.consume(jwtUtils.generateToken(user, REFRESH_TOKEN_EXPIRATION_MILLIS));
+    }
+
+    private static String legacySign(User user, long expirationMillis) {
+        return JWT.create()
+                .withIssuer("auth-service")
+                .withSubject(user.username())
+                .withClaim("id", user.id().toString())
+                .withIssuedAt(new Date())
+                .withExpiresAt(new Date(System.currentTimeMillis() + expirationMillis))
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+}
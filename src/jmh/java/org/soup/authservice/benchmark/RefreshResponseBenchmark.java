@@ -0,0 +1,129 @@
+package org.soup.authservice.benchmark;
+
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.utils.AuthCookies;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cookie work done by a single /refresh call around the token signing measured in RefreshBenchmark: find the refresh
+ * token among the request cookies, then write both token cookies to the response. {@code legacy} reproduces the
+ * previous TokenServiceImpl (stream lookup, {@link Cookie} and {@link ResponseCookie} objects), {@code direct} uses
+ * AuthCookies. Run with {@code -PjmhProfilers=gc} to compare allocations per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RefreshResponseBenchmark {
+    private static final long ACCESS_TOKEN_EXPIRATION_MILLIS = 86400000L;
+    private static final long REFRESH_TOKEN_EXPIRATION_MILLIS = 2592000000L;
+
+    private AuthCookies authCookies;
+
+    private Cookie[] requestCookies;
+
+    private String accessToken;
+
+    private String refreshToken;
+
+    @Setup
+    public void setUp() {
+        authCookies = new AuthCookies(ACCESS_TOKEN_EXPIRATION_MILLIS, REFRESH_TOKEN_EXPIRATION_MILLIS, true, "Lax");
+        // Browsers send whatever else the site has set along with the refresh token
+        requestCookies = new Cookie[]{
+                new Cookie("theme", "dark"),
+                new Cookie("locale", "en"),
+                new Cookie(AuthCookies.REFRESH_TOKEN_NAME, token())};
+        accessToken = token();
+        refreshToken = token();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object legacy() {
+        MockHttpServletRequest request = request();
+        RecordingResponse response = new RecordingResponse(request);
+
+        String current = Arrays.stream(request.getCookies())
+                .filter(cookie -> AuthCookies.REFRESH_TOKEN_NAME.equals(cookie.getName()))
+                .map(Cookie::getValue)
+                .findFirst()
+                .orElseThrow();
+        legacyAddCookie(response, AuthCookies.ACCESS_TOKEN_NAME, accessToken, null, ACCESS_TOKEN_EXPIRATION_MILLIS);
+        legacyAddCookie(response, AuthCookies.REFRESH_TOKEN_NAME, refreshToken, "/refresh",
+                REFRESH_TOKEN_EXPIRATION_MILLIS);
+        return current.length() + response.setCookieHeaders().size();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object direct() {
+        MockHttpServletRequest request = request();
+        RecordingResponse response = new RecordingResponse(request);
+
+        String current = AuthCookies.read(request, AuthCookies.REFRESH_TOKEN_NAME);
+        response.addHeader(HttpHeaders.SET_COOKIE, authCookies.accessCookie(accessToken));
+        response.addHeader(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(refreshToken));
+        return current.length() + response.setCookieHeaders().size();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object legacyHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.SET_COOKIE, legacyCreateCookie(AuthCookies.ACCESS_TOKEN_NAME, accessToken, null,
+                ACCESS_TOKEN_EXPIRATION_MILLIS));
+        headers.add(HttpHeaders.SET_COOKIE, legacyCreateCookie(AuthCookies.REFRESH_TOKEN_NAME, refreshToken,
+                "/refresh", REFRESH_TOKEN_EXPIRATION_MILLIS));
+        return headers;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object directHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.SET_COOKIE, authCookies.accessCookie(accessToken));
+        headers.add(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(refreshToken));
+        return headers;
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/refresh");
+        request.setCookies(requestCookies);
+        return request;
+    }
+
+    private static void legacyAddCookie(RecordingResponse response, String name, String value, String path,
+                                        long expirationMillis) {
+        Cookie cookie = new Cookie(name, value);
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) expirationMillis / 1000);
+        if (path != null) {
+            cookie.setPath(path);
+        }
+
+        response.addCookie(cookie);
+    }
+
+    private static String legacyCreateCookie(String name, String value, String path, long expirationMillis) {
+        ResponseCookie.ResponseCookieBuilder cookie = ResponseCookie.from(name, value)
+                .httpOnly(true)
+                .maxAge((int) expirationMillis / 1000);
+        if (path != null) {
+            cookie.path(path);
+        }
+
+        return cookie.build().toString();
+    }
+
+    // Same length as a signed token, the content does not matter for cookie handling
+    private static String token() {
+        return "x".repeat(300) + UUID.randomUUID();
+    }
+}
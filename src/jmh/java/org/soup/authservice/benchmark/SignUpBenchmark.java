@@ -0,0 +1,81 @@
+package org.soup.authservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.repository.UserRepository;
+import org.soup.authservice.repository.entity.UserEntity;
+import org.soup.authservice.service.AuthService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sign-up throughput against the embedded database. {@code checkThenInsert} reproduces the previous registration
+ * (findByUsername, then JPA save), {@code singleInsert} goes through AuthService. The hash cost is pinned to the
+ * bcrypt minimum so the database part of the request is visible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SignUpBenchmark {
+    private static final String PASSWORD = "password";
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private AuthService authService;
+
+    private UserRepository userRepository;
+
+    private PasswordEncoder passwordEncoder;
+
+    private String prefix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        authService = context.getBean(AuthService.class);
+        userRepository = context.getBean(UserRepository.class);
+        passwordEncoder = context.getBean(PasswordEncoder.class);
+        prefix = UUID.randomUUID().toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void checkThenInsert() {
+        String username = prefix + "-legacy-" + sequence.incrementAndGet();
+        if (userRepository.findByUsername(username).isPresent()) {
+            throw new IllegalArgumentException("User already exists");
+        }
+        UserEntity user = new UserEntity();
+        user.setUsername(username);
+        user.setSalt("salt");
+        user.setPassword(passwordEncoder.encode("salt" + PASSWORD));
+        userRepository.save(user);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void singleInsert() {
+        authService.registerUser(prefix + "-" + sequence.incrementAndGet(), PASSWORD).join();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void duplicate() {
+        try {
+            authService.registerUser(prefix + "-1", PASSWORD).join();
+        } catch (RuntimeException e) {
+            // Expected after the first call: rejected before hashing
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.soup.authservice.benchmark;
+
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.soup.authservice.model.User;
+import org.soup.authservice.service.AuthService;
+import org.soup.authservice.service.TokenService;
+import org.soup.authservice.utils.AuthCookies;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole /refresh calls through TokenService against the embedded database. With a {@code rotationThreshold} of
+ * {@code 0} every call rotates the refresh token as before, with {@code 0.5} a refresh token younger than half its
+ * lifetime stays in use and only the access token is signed again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SlidingRefreshBenchmark {
+    @Param({"0", "0.5"})
+    public String rotationThreshold;
+
+    private ConfigurableApplicationContext context;
+
+    private TokenService tokenService;
+
+    private AuthService authService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of("security.refresh-token.rotation-threshold", rotationThreshold));
+        tokenService = context.getBean(TokenService.class);
+        authService = context.getBean(AuthService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Each thread refreshes its own login, as a rotated refresh token may only be presented once.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        private String refreshToken;
+
+        @Setup(Level.Trial)
+        public void logIn(SlidingRefreshBenchmark benchmark) {
+            String username = UUID.randomUUID().toString();
+            benchmark.authService.registerUser(username, "password").join();
+            User user = benchmark.authService.authenticateUser(username, "password").join();
+
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth");
+            RecordingResponse response = new RecordingResponse(request);
+            benchmark.tokenService.addAuthCookiesToResponse(user, response);
+            refreshToken = response.cookieValue(AuthCookies.REFRESH_TOKEN_NAME);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object refresh(Session session) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/refresh");
+        request.setCookies(new Cookie(AuthCookies.REFRESH_TOKEN_NAME, session.refreshToken));
+        RecordingResponse response = new RecordingResponse(request);
+
+        tokenService.refreshTokens(request, response);
+
+        String next = response.cookieValue(AuthCookies.REFRESH_TOKEN_NAME);
+        if (next != null) {
+            session.refreshToken = next;
+        }
+        return response.setCookieHeaders();
+    }
+}
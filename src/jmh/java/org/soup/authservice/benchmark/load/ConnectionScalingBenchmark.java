@@ -0,0 +1,140 @@
+package org.soup.authservice.benchmark.load;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends bursts of concurrent requests, each on a connection of its own, to a running service and reports how the
+ * latency, the errors and the number of server threads grow with the number of open connections. Run it once against
+ * the servlet build and once against the reactive one, both with RATE_LIMIT_ENABLED=false and COOKIE_SECURE=false, and
+ * compare the lines printed after each iteration; see the README. The target is taken from BENCHMARK_BASE_URL (default
+ * http://localhost:8080) and its metrics from BENCHMARK_MANAGEMENT_URL (default http://localhost:8081).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class ConnectionScalingBenchmark {
+    private static final String BASE_URL = System.getenv().getOrDefault("BENCHMARK_BASE_URL", "http://localhost:8080");
+    private static final String MANAGEMENT_URL =
+            System.getenv().getOrDefault("BENCHMARK_MANAGEMENT_URL", "http://localhost:8081");
+    private static final String PASSWORD = "connection-scaling-password";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final Pattern LIVE_THREADS = Pattern.compile("(?m)^jvm_threads_live_threads(?:\\{[^}]*})? (\\S+)");
+    private static final Pattern PEAK_THREADS = Pattern.compile("(?m)^jvm_threads_peak_threads(?:\\{[^}]*})? (\\S+)");
+
+    @Param({"256", "1024", "4096"})
+    public int connections;
+
+    @Param({"refresh", "auth"})
+    public String endpoint;
+
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private HttpClient client;
+
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        // HTTP/1.1 without a pool limit opens one connection per request in flight, the client keeps them open after
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String username = "connection-scaling-" + UUID.randomUUID();
+        String credentials = "?user=" + username + "&password=" + PASSWORD;
+        expect(201, client.send(post("/sign-up" + credentials).build(), HttpResponse.BodyHandlers.discarding()));
+        HttpResponse<Void> login = expect(200,
+                client.send(post("/auth" + credentials).build(), HttpResponse.BodyHandlers.discarding()));
+
+        // A refresh token is only rotated after half its lifetime, so every request of the trial can present this one
+        request = "refresh".equals(endpoint)
+                ? post("/refresh").header("Cookie", refreshCookie(login)).build()
+                : post("/auth" + credentials).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() throws IOException, InterruptedException {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        latencies.clear();
+        String metrics = client.send(HttpRequest.newBuilder(URI.create(MANAGEMENT_URL + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        System.out.printf("%n%s x %d: %d requests, p50 %d ms, p99 %d ms, max %d ms, failures %s, "
+                        + "server threads %s live / %s peak%n",
+                endpoint, connections, sorted.length, percentile(sorted, 0.5), percentile(sorted, 0.99),
+                percentile(sorted, 1.0), failures, find(LIVE_THREADS, metrics), find(PEAK_THREADS, metrics));
+        failures.clear();
+    }
+
+    /**
+     * One burst: all requests are sent at once and the invocation ends when the last one is answered.
+     */
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            long start = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        if (e != null) {
+                            failures.computeIfAbsent(e.getClass().getSimpleName(), key -> new LongAdder()).increment();
+                        } else if (response.statusCode() != 200) {
+                            failures.computeIfAbsent(Integer.toString(response.statusCode()), key -> new LongAdder())
+                                    .increment();
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(e -> null).join();
+    }
+
+    private static HttpRequest.Builder post(String path) {
+        return HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.noBody());
+    }
+
+    private static HttpResponse<Void> expect(int status, HttpResponse<Void> response) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(response.uri() + " answered " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static String refreshCookie(HttpResponse<Void> response) {
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("Soup-Refresh-Token="))
+                .findFirst()
+                .map(cookie -> cookie.substring(0, cookie.indexOf(';')))
+                .orElseThrow(() -> new IllegalStateException("Login did not set a refresh cookie"));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static String find(Pattern pattern, String metrics) {
+        Matcher matcher = pattern.matcher(metrics);
+        return matcher.find() ? matcher.group(1).replaceAll("\\.0$", "") : "?";
+    }
+}
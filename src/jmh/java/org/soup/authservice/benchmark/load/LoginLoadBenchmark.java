@@ -0,0 +1,105 @@
+package org.soup.authservice.benchmark.load;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load against a running service: logins and refreshes share one group so the refresh percentiles show
+ * how cheap endpoints behave while BCrypt is saturated. Start the service once with VIRTUAL_THREADS_ENABLED=false and
+ * once with a Java 21 build and VIRTUAL_THREADS_ENABLED=true, both with RATE_LIMIT_ENABLED=false, then compare the
+ * p0.99 rows and the reported in-flight maximum. The target is taken from BENCHMARK_BASE_URL (default http://localhost:8080).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class LoginLoadBenchmark {
+    private static final String BASE_URL = System.getenv().getOrDefault("BENCHMARK_BASE_URL", "http://localhost:8080");
+    private static final String PASSWORD = "load-password";
+
+    private final AtomicInteger inFlightLogins = new AtomicInteger();
+    private final AtomicInteger maxInFlightLogins = new AtomicInteger();
+    private final AtomicInteger rejectedLogins = new AtomicInteger();
+
+    private HttpClient client;
+
+    private String username;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        username = "load-" + UUID.randomUUID();
+        HttpResponse<Void> response = post("/sign-up?user=" + username + "&password=" + PASSWORD, null);
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Sign-up failed with status " + response.statusCode());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nmax in-flight logins: %d, rejected logins (503): %d%n",
+                maxInFlightLogins.get(), rejectedLogins.get());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(192)
+    public int login() throws IOException, InterruptedException {
+        int inFlight = inFlightLogins.incrementAndGet();
+        maxInFlightLogins.accumulateAndGet(inFlight, Math::max);
+        try {
+            int status = post("/auth?user=" + username + "&password=" + PASSWORD, null).statusCode();
+            if (status == 503) {
+                rejectedLogins.incrementAndGet();
+            }
+            return status;
+        } finally {
+            inFlightLogins.decrementAndGet();
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(64)
+    public int refresh(RefreshSession session) throws IOException, InterruptedException {
+        HttpResponse<Void> response = post("/refresh", session.refreshCookie);
+        session.update(response);
+        return response.statusCode();
+    }
+
+    private HttpResponse<Void> post(String path, String cookie) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    @State(Scope.Thread)
+    public static class RefreshSession {
+        private String refreshCookie;
+
+        @Setup(Level.Trial)
+        public void setUp(LoginLoadBenchmark benchmark) throws IOException, InterruptedException {
+            update(benchmark.post("/auth?user=" + benchmark.username + "&password=" + PASSWORD, null));
+        }
+
+        void update(HttpResponse<Void> response) {
+            response.headers().allValues("Set-Cookie").stream()
+                    .filter(cookie -> cookie.startsWith("Soup-Refresh-Token="))
+                    .findFirst()
+                    .ifPresent(cookie -> refreshCookie = cookie.substring(0, cookie.indexOf(';')));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.soup.authservice.benchmark.startup;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Latency of {@code /auth} and {@code /refresh} during the first minute after a fresh node reports ready, with and
+ * without the warm-up. Every fork launches the boot jar against the local Postgres, waits for
+ * {@code /actuator/health/readiness} like a load balancer would and then sends load for a single one minute
+ * iteration; compare the p0.99 and p1.00 rows of both parameters. The user and the refresh tokens are created by a
+ * separate launch first, so no request reaches a measured node before it is ready.
+ * <p>
+ * The node is started in the trial setup because JMH threads spin while an iteration setup runs, which would starve
+ * the node on a small machine. Build the jar first with {@code gradle bootJar} and override the iteration counts of
+ * the build, see the README; the time until ready and the warm-up duration are printed after each fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, time = 60)
+@Fork(3)
+public class FirstMinuteBenchmark {
+    private static final Pattern WARMED_UP = Pattern.compile("Warmed up in (\\d+) ms");
+
+    private static final String PASSWORD = "first-minute-password";
+
+    // Matches the @GroupThreads of refresh, each thread keeps its own refresh token
+    private static final int REFRESH_THREADS = 1;
+
+    @Param({"true", "false"})
+    public boolean warmUp;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final ConcurrentLinkedQueue<String> refreshCookies = new ConcurrentLinkedQueue<>();
+
+    private Path jar;
+
+    private Path workDirectory;
+
+    private String username;
+
+    private String baseUrl;
+
+    private ServiceProcess service;
+
+    private long readyMillis;
+
+    @Setup(Level.Trial)
+    public void startNode() throws IOException, InterruptedException {
+        jar = ServiceProcess.findBootJar();
+        workDirectory = Files.createTempDirectory("first-minute-benchmark");
+        username = "first-minute-" + UUID.randomUUID();
+        launch(false);
+        try {
+            expect(201, post("/sign-up?user=" + username + "&password=" + PASSWORD, null));
+            for (int i = 0; i < REFRESH_THREADS; i++) {
+                refreshCookies.add(refreshCookie(expect(200, login())));
+            }
+        } finally {
+            service.stop();
+        }
+
+        long start = System.nanoTime();
+        launch(warmUp);
+        readyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopNode() throws IOException, InterruptedException {
+        service.stop();
+        System.out.printf("%nwarm-up %s: ready after %d ms, warm-up took %s ms%n",
+                warmUp ? "enabled" : "disabled", readyMillis, service.find(WARMED_UP));
+    }
+
+    @Benchmark
+    @Group("firstMinute")
+    @GroupThreads(1)
+    public int auth() throws IOException, InterruptedException {
+        return login().statusCode();
+    }
+
+    @Benchmark
+    @Group("firstMinute")
+    @GroupThreads(REFRESH_THREADS)
+    public int refresh(RefreshSession session) throws IOException, InterruptedException {
+        HttpResponse<Void> response = post("/refresh", session.refreshCookie);
+        String rotated = refreshCookie(response);
+        if (rotated != null) {
+            session.refreshCookie = rotated;
+        }
+        return response.statusCode();
+    }
+
+    private void launch(boolean warmUp) throws IOException, InterruptedException {
+        int port = ServiceProcess.freePort();
+        int managementPort = ServiceProcess.freePort();
+        baseUrl = "http://localhost:" + port;
+        service = ServiceProcess.start(List.of("java", "-jar", jar.toString()), workDirectory, Map.of(
+                        "SERVER_PORT", String.valueOf(port),
+                        "MANAGEMENT_PORT", String.valueOf(managementPort),
+                        "COOKIE_SECURE", "false",
+                        "RATE_LIMIT_ENABLED", "false",
+                        "WARM_UP_ENABLED", String.valueOf(warmUp)),
+                Files.createTempFile(workDirectory, "launch", ".log"));
+        service.awaitOk("http://localhost:" + managementPort + "/actuator/health/readiness");
+    }
+
+    private HttpResponse<Void> login() throws IOException, InterruptedException {
+        return post("/auth?user=" + username + "&password=" + PASSWORD, null);
+    }
+
+    private HttpResponse<Void> post(String path, String cookie) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static HttpResponse<Void> expect(int status, HttpResponse<Void> response) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(response.uri() + " answered " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static String refreshCookie(HttpResponse<Void> response) {
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("Soup-Refresh-Token="))
+                .findFirst()
+                .map(cookie -> cookie.substring(0, cookie.indexOf(';')))
+                .orElse(null);
+    }
+
+    @State(Scope.Thread)
+    public static class RefreshSession {
+        private String refreshCookie;
+
+        @Setup(Level.Trial)
+        public void setUp(FirstMinuteBenchmark benchmark) {
+            refreshCookie = benchmark.refreshCookies.poll();
+        }
+    }
+}
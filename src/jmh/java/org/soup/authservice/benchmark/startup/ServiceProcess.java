@@ -0,0 +1,108 @@
+package org.soup.authservice.benchmark.startup;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The packaged service running as a child process, with its output written to a log file.
+ */
+final class ServiceProcess {
+    private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(3);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private final Process process;
+
+    private final Path log;
+
+    private ServiceProcess(Process process, Path log) {
+        this.process = process;
+        this.log = log;
+    }
+
+    static ServiceProcess start(List<String> command, Path directory, Map<String, String> environment, Path log)
+            throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(environment);
+        return new ServiceProcess(builder.start(), log);
+    }
+
+    /**
+     * Polls the URL until it answers 200, and stops the service if it does not.
+     */
+    void awaitOk(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT_NANOS;
+        while (System.nanoTime() - deadline < 0) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The service exited during startup, see " + log);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(10);
+        }
+        stop();
+        throw new IllegalStateException(url + " did not answer within the timeout, see " + log);
+    }
+
+    /**
+     * @return the first group of the first match of the pattern in the log, or {@code "?"}
+     */
+    String find(Pattern pattern) throws IOException {
+        Matcher matcher = pattern.matcher(Files.readString(log));
+        return matcher.find() ? matcher.group(1) : "?";
+    }
+
+    void stop() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+
+    static Path findBootJar() throws IOException {
+        try (Stream<Path> jars = Files.list(Path.of("build", "libs"))) {
+            return jars.filter(path -> path.toString().endsWith(".jar"))
+                    .filter(path -> !path.toString().endsWith("-plain.jar") && !path.toString().endsWith("-jmh.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No boot jar in build/libs, run gradle bootJar"))
+                    .toAbsolutePath();
+        }
+    }
+
+    static void run(List<String> command, Path directory, Path output) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(String.join(" ", command) + " failed, see " + output);
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
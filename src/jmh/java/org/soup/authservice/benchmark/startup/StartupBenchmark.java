@@ -0,0 +1,108 @@
+package org.soup.authservice.benchmark.startup;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Time from launching the packaged service to its first answered request, for each way of starting it: the fat jar,
+ * the extracted jar, with a CDS archive, with Spring AOT on top and finally with the fast-start profile, which is how
+ * the Docker image runs. The CDS archives are trained the same way the Dockerfile does it. Every launch is a fresh JVM
+ * against the local Postgres (see application.yaml), so the schema is migrated already. Build the jar first with
+ * {@code gradle bootJar}; Spring's own startup time is printed after each launch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class StartupBenchmark {
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+
+    @Param({"fat-jar", "extracted", "cds", "cds-aot", "fast-start"})
+    public String mode;
+
+    private Path workDirectory;
+
+    private Path jar;
+
+    private ServiceProcess service;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException, InterruptedException {
+        Path bootJar = ServiceProcess.findBootJar();
+        workDirectory = Files.createTempDirectory("startup-benchmark");
+        if (mode.equals("fat-jar")) {
+            jar = bootJar;
+            return;
+        }
+
+        ServiceProcess.run(
+                List.of("java", "-Djarmode=tools", "-jar", bootJar.toString(), "extract", "--destination", "extracted"),
+                workDirectory, workDirectory.resolve("extract.log"));
+        Path extracted = workDirectory.resolve("extracted");
+        jar = extracted.resolve(bootJar.getFileName());
+        if (usesCds()) {
+            // The training run of the Dockerfile: refresh the context without a database and record the loaded classes
+            List<String> command = new ArrayList<>(List.of("java", "-XX:ArchiveClassesAtExit=app.jsa",
+                    "-Dspring.context.exit=onRefresh", "-Dspring.profiles.active=training"));
+            if (usesAot()) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            command.addAll(List.of("-jar", jar.toString()));
+            ServiceProcess.run(command, extracted, workDirectory.resolve("training.log"));
+        }
+    }
+
+    @Benchmark
+    public int firstRequest() throws IOException, InterruptedException {
+        int port = ServiceProcess.freePort();
+        List<String> command = new ArrayList<>(List.of("java"));
+        if (usesCds()) {
+            command.add("-XX:SharedArchiveFile=app.jsa");
+        }
+        if (usesAot()) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-jar", jar.toString()));
+
+        Map<String, String> environment = new HashMap<>();
+        environment.put("SERVER_PORT", String.valueOf(port));
+        environment.put("MANAGEMENT_PORT", "0");
+        if (mode.equals("fast-start")) {
+            environment.put("SPRING_PROFILES_ACTIVE", "fast-start");
+        }
+        service = ServiceProcess.start(command, jar.getParent(), environment,
+                Files.createTempFile(workDirectory, "launch", ".log"));
+        service.awaitOk("http://localhost:" + port + "/.well-known/jwks.json");
+        return 200;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws IOException, InterruptedException {
+        if (service == null) {
+            return;
+        }
+
+        service.stop();
+        System.out.printf("%n%s: Spring reported startup in %s s%n", mode, service.find(STARTED));
+        service = null;
+    }
+
+    private boolean usesCds() {
+        return mode.startsWith("cds") || mode.equals("fast-start");
+    }
+
+    private boolean usesAot() {
+        return mode.equals("cds-aot") || mode.equals("fast-start");
+    }
+}
@@ -0,0 +1,36 @@
+CREATE TABLE IF NOT EXISTS users
+(
+    id         UUID         DEFAULT RANDOM_UUID() PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL UNIQUE,
+    password   VARCHAR(255) NOT NULL,
+    salt       VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP    DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_users_username ON users (username);
+
+CREATE TABLE IF NOT EXISTS refresh_token_families
+(
+    family_id   UUID                     PRIMARY KEY,
+    user_id     UUID                     NOT NULL,
+    current_jti UUID                     NOT NULL,
+    expires_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked     BOOLEAN                  DEFAULT FALSE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_expires_at ON refresh_token_families (expires_at);
+CREATE INDEX IF NOT EXISTS idx_refresh_token_families_user_id ON refresh_token_families (user_id);
+
+CREATE TABLE IF NOT EXISTS revoked_tokens
+(
+    jti        UUID                     PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
+
+CREATE TABLE IF NOT EXISTS user_token_cutoffs
+(
+    user_id    UUID                     PRIMARY KEY,
+    not_before TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,39 @@
+package org.soup.authservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.soup.authservice.config.JwtAuthenticationFilter.RejectionReason;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+
+import java.io.IOException;
+
+/**
+ * Answers unauthenticated requests with 401 and the reason recorded by {@link JwtAuthenticationFilter}, using the
+ * error codes of RFC 6750.
+ */
+public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
+    private static final String REALM = "auth-service";
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException e)
+            throws IOException {
+        Object attribute = request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE);
+        RejectionReason reason = attribute instanceof RejectionReason rejectionReason
+                ? rejectionReason
+                : RejectionReason.MISSING;
+
+        StringBuilder challenge = new StringBuilder("Bearer realm=\"").append(REALM).append('"');
+        if (reason.getError() != null) {
+            challenge.append(", error=\"").append(reason.getError())
+                    .append("\", error_description=\"").append(reason.getDescription()).append('"');
+        }
+
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, challenge.toString());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(reason.getDescription());
+    }
+}
@@ -0,0 +1,149 @@
+package org.soup.authservice.config;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.utils.AuthCookies;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Authenticates requests from the access token cookie. The principal is built from the verified claims only, so a
+ * protected request never touches the database or a session. Rejected requests continue unauthenticated with the
+ * reason stored in {@link #REJECTION_REASON_ATTRIBUTE} for the entry point. The admin authority comes from the role
+ * claim the token was signed with.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    public static final String REJECTION_REASON_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".REJECTION_REASON";
+    public static final String ADMIN_AUTHORITY = "ADMIN";
+
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority(ADMIN_AUTHORITY));
+
+    private final SecurityContextHolderStrategy securityContextHolderStrategy =
+            SecurityContextHolder.getContextHolderStrategy();
+
+    private final JwtUtils jwtUtils;
+
+    private final TokenRevocationService revocationService;
+
+    private final Set<String> publicPaths;
+
+    public JwtAuthenticationFilter(
+            JwtUtils jwtUtils,
+            TokenRevocationService revocationService,
+            Set<String> publicPaths) {
+        this.jwtUtils = jwtUtils;
+        this.revocationService = revocationService;
+        this.publicPaths = publicPaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return publicPaths.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = AuthCookies.read(request, AuthCookies.ACCESS_TOKEN_NAME);
+        if (token == null) {
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.MISSING);
+        } else if (!isWellFormed(token)) {
+            // Not worth a base64 decode or an HMAC
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.MALFORMED);
+        } else {
+            authenticate(request, token);
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String token) {
+        TokenClaims claims;
+        try {
+            claims = jwtUtils.verifyAndDecode(token);
+        } catch (TokenExpiredException e) {
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.EXPIRED);
+            return;
+        } catch (SignatureVerificationException e) {
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.INVALID_SIGNATURE);
+            return;
+        } catch (JWTVerificationException e) {
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.INVALID);
+            return;
+        }
+        if (!TokenClaims.ACCESS.equals(claims.type())) {
+            // Refresh tokens are only good for /refresh, where their reuse is tracked. Tokens without a type predate
+            // the claim and may be refresh tokens as well
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.INVALID);
+            return;
+        }
+        // Checked on every request rather than cached with the claims, since a token can be revoked at any time
+        if (revocationService.isRevoked(claims)) {
+            request.setAttribute(REJECTION_REASON_ATTRIBUTE, RejectionReason.REVOKED);
+            return;
+        }
+
+        List<GrantedAuthority> authorities = claims.isAdmin()
+                ? ADMIN_AUTHORITIES
+                : Collections.emptyList();
+        SecurityContext context = securityContextHolderStrategy.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                claims.toUser(), null, authorities));
+        securityContextHolderStrategy.setContext(context);
+    }
+
+    // A compact JWS is three non-empty segments separated by exactly two dots
+    private static boolean isWellFormed(String token) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        return first > 0
+                && second > first + 1
+                && second < token.length() - 1
+                && token.indexOf('.', second + 1) < 0;
+    }
+
+    public enum RejectionReason {
+        MISSING(null, "Access token is missing"),
+        MALFORMED("invalid_token", "Access token is malformed"),
+        EXPIRED("invalid_token", "Access token has expired"),
+        INVALID_SIGNATURE("invalid_token", "Access token signature is invalid"),
+        INVALID("invalid_token", "Access token is invalid"),
+        REVOKED("invalid_token", "Access token has been revoked");
+
+        private final String error;
+
+        private final String description;
+
+        RejectionReason(String error, String description) {
+            this.error = error;
+            this.description = description;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.soup.authservice.config;
+
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+/**
+ * Skips the Liquibase run on startup when the changelog is unchanged since the database was last migrated. Liquibase
+ * would come to the same conclusion, but only after parsing every changeset, taking its lock and comparing checksums
+ * with {@code databasechangelog}, which is a noticeable share of a cold start.
+ * <p>
+ * The checksum covers every file in the directory of the master changelog and is stored in {@code schema_checksum}
+ * after each successful run, whether or not skipping is enabled.
+ */
+@Slf4j
+@Component
+public class MigrationChecksumGuard implements BeanPostProcessor {
+    private static final String SELECT_CHECKSUM = "select checksum from schema_checksum where id = 1";
+
+    private static final String UPSERT_CHECKSUM = """
+            insert into schema_checksum (id, checksum, migrated_at) values (1, ?, now())
+            on conflict (id) do update set checksum = excluded.checksum, migrated_at = excluded.migrated_at""";
+
+    private final boolean liquibaseEnabled;
+
+    private final boolean skipUnchanged;
+
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    // Checksum of the changelog Liquibase is about to run, stored once the run has succeeded
+    private String pendingChecksum;
+
+    public MigrationChecksumGuard(
+            @Value("${spring.liquibase.enabled:true}") boolean liquibaseEnabled,
+            @Value("${startup.skip-unchanged-migrations}") boolean skipUnchanged) {
+        this.liquibaseEnabled = liquibaseEnabled;
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!liquibaseEnabled || !(bean instanceof SpringLiquibase liquibase)) {
+            return bean;
+        }
+
+        String checksum = checksum(liquibase.getChangeLog());
+        if (skipUnchanged && checksum.equals(storedChecksum(liquibase.getDataSource()))) {
+            liquibase.setShouldRun(false);
+            log.info("Skipping Liquibase, the changelog is unchanged since the last migration");
+            return bean;
+        }
+        pendingChecksum = checksum;
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (pendingChecksum != null && bean instanceof SpringLiquibase liquibase) {
+            new JdbcTemplate(liquibase.getDataSource()).update(UPSERT_CHECKSUM, pendingChecksum);
+            pendingChecksum = null;
+        }
+        return bean;
+    }
+
+    private static String storedChecksum(DataSource dataSource) {
+        try {
+            return new JdbcTemplate(dataSource).queryForList(SELECT_CHECKSUM, String.class).stream()
+                    .findFirst()
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            // Not migrated yet, the table comes with the changelog
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the name and content of every file next to and below the master changelog, in a stable order.
+     */
+    String checksum(String changeLog) {
+        String path = changeLog.replaceFirst("^classpath\\*?:", "").replaceFirst("^/+", "");
+        String directory = path.substring(0, path.lastIndexOf('/') + 1);
+        try {
+            Resource[] resources = resourceResolver.getResources("classpath*:" + directory + "**/*.*");
+            Arrays.sort(resources, Comparator.comparing(resource -> relativePath(resource, directory)));
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource resource : resources) {
+                digest.update(relativePath(resource, directory).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream content = resource.getInputStream()) {
+                    digest.update(content.readAllBytes());
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the changelog " + changeLog, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String relativePath(Resource resource, String directory) {
+        try {
+            String url = resource.getURL().toString();
+            return url.substring(url.lastIndexOf(directory) + directory.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
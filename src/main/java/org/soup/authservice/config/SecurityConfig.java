@@ -1,48 +1,68 @@
 package org.soup.authservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.PasswordHashCalibrator;
+import org.soup.authservice.utils.PepperedPasswordEncoder;
+import org.soup.authservice.utils.TimedPasswordEncoder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.util.Set;
 
 @Configuration
 public class SecurityConfig {
+    // /introspect authenticates its clients itself, with HTTP Basic rather than an access token. The actuator
+    // endpoints are served on the management port, which is not meant to be reachable from outside
+    private static final Set<String> PUBLIC_PATHS = Set.of(
+            "/sign-up", "/auth", "/refresh", "/logout", "/introspect", "/.well-known/jwks.json",
+            "/actuator/health", "/actuator/health/liveness", "/actuator/health/readiness", "/actuator/prometheus");
+
     @Value("${security.password.salt}")
     private String salt;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+            HttpSecurity http,
+            JwtUtils jwtUtils,
+            TokenRevocationService revocationService) throws Exception {
         http.authorizeHttpRequests(auth -> auth
-                .requestMatchers("/sign-up", "/auth", "refresh")
+                // Lets 403 and 404 responses through their /error dispatch instead of turning them into 401
+                .dispatcherTypeMatchers(DispatcherType.ERROR)
                 .permitAll()
+                .requestMatchers(PUBLIC_PATHS.toArray(String[]::new))
+                .permitAll()
+                .requestMatchers("/admin/**")
+                .hasAuthority(JwtAuthenticationFilter.ADMIN_AUTHORITY)
                 .anyRequest().authenticated());
 
+        // Created here rather than as a bean so that Spring Boot does not register it as a servlet filter as well
+        http.addFilterBefore(new JwtAuthenticationFilter(jwtUtils, revocationService, PUBLIC_PATHS),
+                UsernamePasswordAuthenticationFilter.class);
+        http.exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new JwtAuthenticationEntryPoint()));
+
         http.sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
         http.csrf(AbstractHttpConfigurer::disable);
+        // /logout is served by AuthController, which also revokes the tokens
+        http.logout(AbstractHttpConfigurer::disable);
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder() {
-            @Override
-            public String encode(CharSequence rawPassword) {
-                String saltedPassword = salt + rawPassword.toString();
-                return super.encode(saltedPassword);
-            }
-
-            @Override
-            public boolean matches(CharSequence rawPassword, String encodedPassword) {
-                String saltedPassword = salt + rawPassword.toString();
-                return super.matches(saltedPassword, encodedPassword);
-            }
-        };
+    public PasswordEncoder passwordEncoder(PasswordHashCalibrator passwordHashCalibrator, MeterRegistry meterRegistry) {
+        return new TimedPasswordEncoder(
+                new PepperedPasswordEncoder(salt, passwordHashCalibrator.createEncoder()), meterRegistry);
     }
 }
@@ -0,0 +1,239 @@
+package org.soup.authservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.repository.UserRepository;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.PasswordHashingExecutor;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the hot paths of {@code /sign-up}, {@code /auth} and {@code /refresh} with synthetic data before the service
+ * reports ready, so the first real requests after a deploy do not pay for a cold JIT, an empty connection pool and
+ * statements Postgres has not prepared yet.
+ * <p>
+ * Spring Boot switches the readiness state to accepting traffic only after every {@link ApplicationRunner} has
+ * returned, so until the warm-up is done {@code /actuator/health/readiness} answers 503 and load balancers keep the
+ * node out of rotation. The warm-up is best effort: a failing phase is logged and the node still becomes ready.
+ */
+@Slf4j
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+    private static final String USERNAME = "warm-up";
+    private static final String PASSWORD = "warm-up-password";
+
+    // pgjdbc switches a statement to a server-side prepared one on its fifth execution on the same connection
+    private static final int MIN_LOOKUPS_PER_CONNECTION = 5;
+
+    private static final long CONNECTION_TIMEOUT_SECONDS = 30;
+
+    private final boolean enabled;
+
+    private final long tokenMillis;
+
+    private final int passwordHashes;
+
+    private final int lookupsPerConnection;
+
+    private final JwtUtils jwtUtils;
+
+    private final VerifiedTokenCache tokenCache;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final PasswordHashingExecutor hashingExecutor;
+
+    private final UserRepository userRepository;
+
+    private final RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataSource dataSource;
+
+    private final MeterRegistry meterRegistry;
+
+    public WarmUpRunner(
+            @Value("${startup.warm-up.enabled}") boolean enabled,
+            @Value("${startup.warm-up.token-millis}") long tokenMillis,
+            @Value("${startup.warm-up.password-hashes}") int passwordHashes,
+            @Value("${startup.warm-up.lookups-per-connection}") int lookupsPerConnection,
+            JwtUtils jwtUtils,
+            VerifiedTokenCache tokenCache,
+            PasswordEncoder passwordEncoder,
+            PasswordHashingExecutor hashingExecutor,
+            UserRepository userRepository,
+            RefreshTokenFamilyRepository refreshTokenFamilyRepository,
+            PlatformTransactionManager transactionManager,
+            DataSource dataSource,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.tokenMillis = tokenMillis;
+        this.passwordHashes = passwordHashes;
+        this.lookupsPerConnection = Math.max(MIN_LOOKUPS_PER_CONNECTION, lookupsPerConnection);
+        this.jwtUtils = jwtUtils;
+        this.tokenCache = tokenCache;
+        this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.userRepository = userRepository;
+        this.refreshTokenFamilyRepository = refreshTokenFamilyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int connections = phase("connections", this::warmUpConnections);
+        int tokenCycles = phase("tokens", this::warmUpTokens);
+        int hashes = phase("passwords", this::warmUpPasswords);
+        long elapsed = System.nanoTime() - start;
+        timer("total").record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warmed up in {} ms: {} connections, {} token cycles, {} password hashes",
+                TimeUnit.NANOSECONDS.toMillis(elapsed), connections, tokenCycles, hashes);
+    }
+
+    private int phase(String name, Supplier<Integer> phase) {
+        long start = System.nanoTime();
+        try {
+            return phase.get();
+        } catch (RuntimeException e) {
+            log.warn("Warm-up of {} failed, continuing without it", name, e);
+            return 0;
+        } finally {
+            timer(name).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Opens the minimum number of pooled connections at once and runs the lookups of the hot paths on each of them, so
+     * every connection has its statements prepared. Each task keeps its transaction, and with it its connection, open
+     * until all of them have one; otherwise the pool would hand the same few connections around.
+     */
+    int warmUpConnections() {
+        int connections = dataSource instanceof HikariDataSource hikari ? Math.max(1, hikari.getMinimumIdle()) : 1;
+        CountDownLatch allOpen = new CountDownLatch(connections);
+        ExecutorService executor = Executors.newFixedThreadPool(connections, new CustomizableThreadFactory("warm-up-"));
+        try {
+            List<Future<?>> tasks = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                tasks.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                    allOpen.countDown();
+                    awaitQuietly(allOpen);
+                    for (int j = 0; j < lookupsPerConnection; j++) {
+                        runLookups();
+                    }
+                })));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            return connections;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming up connections", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to warm up connections", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runLookups() {
+        String username = USERNAME + "-" + UUID.randomUUID();
+        userRepository.findCredentialsByUsername(username);
+        userRepository.findByUsername(username);
+        userRepository.existsByUsername(username);
+        refreshTokenFamilyRepository.isCurrent(UUID.randomUUID(), UUID.randomUUID(), Instant.now());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            // Gives up on a pool that cannot open them all, the lookups still warm what is there
+            latch.await(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Signs and verifies access and refresh tokens until the time budget is spent. The tokens are dropped from the
+     * verified token cache again so that they do not take the place of real ones.
+     */
+    int warmUpTokens() {
+        User user = new User(UUID.randomUUID(), USERNAME);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tokenMillis);
+        int cycles = 0;
+        do {
+            UUID familyId = UUID.randomUUID();
+            verify(jwtUtils.generateToken(user, familyId, 60_000), TokenClaims.ACCESS);
+            verify(jwtUtils.generateRefreshToken(user, familyId, UUID.randomUUID(), 60_000), TokenClaims.REFRESH);
+            cycles++;
+        } while (System.nanoTime() - deadline < 0);
+        return cycles;
+    }
+
+    private void verify(String token, String type) {
+        TokenClaims claims = jwtUtils.verifyAndDecode(token);
+        tokenCache.invalidate(token);
+        if (!type.equals(claims.type())) {
+            throw new IllegalStateException("Warm-up token came back as " + claims.type() + " instead of " + type);
+        }
+    }
+
+    /**
+     * Hashes and matches passwords on the hashing pool, which also starts its threads.
+     */
+    int warmUpPasswords() {
+        List<CompletableFuture<Boolean>> hashes = new ArrayList<>(passwordHashes);
+        for (int i = 0; i < passwordHashes; i++) {
+            hashes.add(hashingExecutor.submit(() -> passwordEncoder.matches(PASSWORD, passwordEncoder.encode(PASSWORD))));
+        }
+        for (CompletableFuture<Boolean> hash : hashes) {
+            if (!hash.join()) {
+                throw new IllegalStateException("Warm-up password did not match its own hash");
+            }
+        }
+        return passwordHashes;
+    }
+
+    private Timer timer(String phase) {
+        return Timer.builder("warm.up")
+                .description("Time spent warming up before reporting ready")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,91 @@
+package org.soup.authservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.soup.authservice.model.UserImportProgress;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.service.UserImportService;
+import org.soup.authservice.utils.UserImportReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    private final TokenRevocationService revocationService;
+
+    private final UserImportService userImportService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter progressWriter;
+
+    public AdminController(
+            TokenRevocationService revocationService,
+            UserImportService userImportService,
+            ObjectMapper objectMapper) {
+        this.revocationService = revocationService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+        this.progressWriter = objectMapper.writerFor(UserImportProgress.class);
+    }
+
+    @PostMapping("/users/{userId}/revoke")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void revokeUser(@PathVariable("userId") UUID userId) {
+        revocationService.revokeUser(userId);
+    }
+
+    /**
+     * Imports users from an NDJSON or CSV body and streams one progress line per chunk. The status is sent with the
+     * first line, so a failure during the import is reported in the last line rather than by the status code.
+     */
+    @PostMapping(value = "/users/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importUsers(
+            @RequestParam(value = "skip", defaultValue = "0") long skip,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        UserImportReader.Format format = contentType.isCompatibleWith(TEXT_CSV)
+                ? UserImportReader.Format.CSV
+                : UserImportReader.Format.NDJSON;
+        // Checks the CSV header while a bad request can still be answered with 400
+        UserImportReader reader = new UserImportReader(
+                new InputStreamReader(request.getInputStream(), charset), format, objectMapper);
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream outputStream = response.getOutputStream();
+        userImportService.importUsers(reader, skip, progress -> {
+            try {
+                outputStream.write(progressWriter.writeValueAsBytes(progress));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -2,47 +2,113 @@ package org.soup.authservice.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.soup.authservice.model.AuditEventType;
 import org.soup.authservice.model.User;
+import org.soup.authservice.service.AuditService;
 import org.soup.authservice.service.AuthService;
+import org.soup.authservice.service.RateLimitService;
 import org.soup.authservice.service.TokenService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 @RestController
 public class AuthController {
     private final AuthService authService;
 
     private final TokenService tokenService;
 
-    public AuthController(AuthService authService, TokenService tokenService) {
+    private final RateLimitService rateLimitService;
+
+    private final AuditService auditService;
+
+    private final Executor requestExecutor;
+
+    public AuthController(
+            AuthService authService,
+            TokenService tokenService,
+            RateLimitService rateLimitService,
+            AuditService auditService,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor requestExecutor) {
         this.authService = authService;
         this.tokenService = tokenService;
+        this.rateLimitService = rateLimitService;
+        this.auditService = auditService;
+        this.requestExecutor = requestExecutor;
     }
 
     @PostMapping("/sign-up")
-    @ResponseStatus(HttpStatus.CREATED)
-    public void signUp(
+    public CompletableFuture<ResponseEntity<Void>> signUp(
             @RequestParam("user") String username,
-            @RequestParam("password") String password) {
-        authService.registerUser(username, password);
+            @RequestParam("password") String password,
+            HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        return audited(AuditEventType.SIGN_UP, username, remoteAddress, () -> {
+            rateLimitService.checkSignUp(username, remoteAddress);
+            return authService.registerUser(username, password);
+        }).thenApply(ignored -> ResponseEntity.status(HttpStatus.CREATED).build());
     }
 
     @PostMapping("/auth")
-    @ResponseStatus(HttpStatus.OK)
-    public void auth(
+    public CompletableFuture<ResponseEntity<Void>> auth(
             @RequestParam("user") String username,
             @RequestParam("password") String password,
-            HttpServletResponse response) {
-        User user = authService.authenticateUser(username, password);
-        tokenService.addAuthCookiesToResponse(user, response);
+            HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        // Signing and the refresh token family insert continue on the request executor, not on the hashing pool
+        return audited(AuditEventType.LOGIN, username, remoteAddress, () -> {
+            rateLimitService.checkAuth(username, remoteAddress);
+            return authService.authenticateUser(username, password);
+        }).thenApplyAsync(user -> ResponseEntity.ok()
+                .headers(tokenService.createAuthCookieHeaders(user))
+                .build(), requestExecutor);
     }
 
     @PostMapping("/refresh")
     @ResponseStatus(HttpStatus.OK)
     public void refresh(HttpServletRequest request, HttpServletResponse response) {
-        tokenService.refreshTokens(request, response);
+        User user;
+        try {
+            user = tokenService.refreshTokens(request, response);
+        } catch (RuntimeException e) {
+            auditService.record(AuditEventType.REFRESH, false, null, null, request.getRemoteAddr());
+            throw e;
+        }
+        auditService.record(AuditEventType.REFRESH, true, user.id(), user.username(), request.getRemoteAddr());
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(HttpServletRequest request) {
+        return ResponseEntity.noContent()
+                .headers(tokenService.logout(request))
+                .build();
+    }
+
+    /**
+     * Records the outcome of the request, including rejections thrown before the future exists.
+     */
+    private <T> CompletableFuture<T> audited(
+            AuditEventType type,
+            String username,
+            String remoteAddress,
+            Supplier<CompletableFuture<T>> action) {
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            auditService.record(type, false, null, username, remoteAddress);
+            throw e;
+        }
+        return result.whenComplete((value, e) -> auditService.record(
+                type, e == null, value instanceof User user ? user.id() : null, username, remoteAddress));
     }
 }
@@ -1,5 +1,11 @@
 package org.soup.authservice.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.soup.authservice.exception.InvalidClientException;
+import org.soup.authservice.exception.RateLimitExceededException;
+import org.soup.authservice.exception.UserAlreadyExistsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -7,20 +13,91 @@ import org.springframework.security.web.authentication.rememberme.InvalidCookieE
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maps failures to responses and counts them by reason, so rejected requests can be told apart in the metrics where
+ * the status code alone is ambiguous.
+ */
 @ControllerAdvice
 public class ExceptionController {
+    private final Counter invalidRequests;
+
+    private final Counter duplicateUsers;
+
+    private final Counter badCredentials;
+
+    private final Counter invalidCookies;
+
+    private final Counter invalidClients;
+
+    private final Counter busyRejections;
+
+    private final Counter rateLimitedRequests;
+
+    public ExceptionController(MeterRegistry meterRegistry) {
+        this.invalidRequests = rejections(meterRegistry, "invalid_request");
+        this.duplicateUsers = rejections(meterRegistry, "duplicate_user");
+        this.badCredentials = rejections(meterRegistry, "bad_credentials");
+        this.invalidCookies = rejections(meterRegistry, "invalid_cookie");
+        this.invalidClients = rejections(meterRegistry, "invalid_client");
+        this.busyRejections = rejections(meterRegistry, "busy");
+        this.rateLimitedRequests = rejections(meterRegistry, "rate_limited");
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("request.rejections")
+                .description("Requests rejected by the service, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> illegalArgumentException(IllegalArgumentException e) {
+        invalidRequests.increment();
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<String> userAlreadyExistsException(UserAlreadyExistsException e) {
+        duplicateUsers.increment();
         return ResponseEntity.badRequest().body(e.getMessage());
     }
 
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<String> badCredentialsException(BadCredentialsException e) {
+        badCredentials.increment();
         return ResponseEntity.badRequest().body(e.getMessage());
     }
 
     @ExceptionHandler(InvalidCookieException.class)
     public ResponseEntity<String> invalidCookieException(InvalidCookieException e) {
+        invalidCookies.increment();
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
     }
+
+    @ExceptionHandler(InvalidClientException.class)
+    public ResponseEntity<String> invalidClientException(InvalidClientException e) {
+        invalidClients.increment();
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"auth-service\"")
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> rejectedExecutionException(RejectedExecutionException e) {
+        busyRejections.increment();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Server is busy, try again later");
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<String> rateLimitExceededException(RateLimitExceededException e) {
+        rateLimitedRequests.increment();
+        long retryAfterSeconds = Math.max((e.getRetryAfterMillis() + 999) / 1000, 1);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(e.getMessage());
+    }
 }
@@ -0,0 +1,77 @@
+package org.soup.authservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.soup.authservice.model.IntrospectionBatch;
+import org.soup.authservice.model.TokenIntrospection;
+import org.soup.authservice.service.IntrospectionService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+public class IntrospectionController {
+    // Lines are flushed in groups, so a gateway can start on the first results without a packet per token
+    private static final int FLUSH_EVERY = 64;
+
+    private final IntrospectionService introspectionService;
+
+    private final ObjectWriter writer;
+
+    public IntrospectionController(IntrospectionService introspectionService, ObjectMapper objectMapper) {
+        this.introspectionService = introspectionService;
+        this.writer = objectMapper.writerFor(TokenIntrospection.class);
+    }
+
+    @PostMapping(value = "/introspect",
+            consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TokenIntrospection> introspect(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestParam("token") String token) {
+        introspectionService.authenticateClient(authorization);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(introspectionService.introspect(token));
+    }
+
+    /**
+     * Introspects a batch of tokens and streams one JSON object per line, in the order of the request.
+     */
+    @PostMapping(value = "/introspect",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> introspectBatch(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody IntrospectionBatch batch) {
+        introspectionService.authenticateClient(authorization);
+        // Validated here, before the status is committed
+        Stream<TokenIntrospection> introspections = introspectionService.introspectAll(batch.tokens());
+
+        StreamingResponseBody body = outputStream -> {
+            Iterator<TokenIntrospection> iterator = introspections.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+                if (++written % FLUSH_EVERY == 0) {
+                    outputStream.flush();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
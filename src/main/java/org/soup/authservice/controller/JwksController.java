@@ -0,0 +1,36 @@
+package org.soup.authservice.controller;
+
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtKeys.Jwks;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class JwksController {
+    private final JwtKeys jwtKeys;
+
+    public JwksController(JwtKeys jwtKeys) {
+        this.jwtKeys = jwtKeys;
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> jwks(WebRequest request) {
+        // Serialized once per key ring, a request only compares the ETag or copies the bytes
+        Jwks jwks = jwtKeys.jwks();
+        CacheControl cacheControl = CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic();
+        if (request.checkNotModified(jwks.eTag())) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(jwks.eTag())
+                .cacheControl(cacheControl)
+                .body(jwks.body());
+    }
+}
@@ -0,0 +1,7 @@
+package org.soup.authservice.exception;
+
+public class InvalidClientException extends RuntimeException {
+    public InvalidClientException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package org.soup.authservice.exception;
+
+// Still an IllegalArgumentException, so callers that reject bad input in general keep handling it
+public class UserAlreadyExistsException extends IllegalArgumentException {
+    public UserAlreadyExistsException(String message) {
+        super(message);
+    }
+}
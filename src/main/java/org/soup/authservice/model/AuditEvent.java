@@ -0,0 +1,16 @@
+package org.soup.authservice.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A sign-up, login or refresh and whether it succeeded. The user id is only known for successful logins and refreshes.
+ */
+public record AuditEvent(
+        Instant occurredAt,
+        AuditEventType type,
+        boolean success,
+        UUID userId,
+        String username,
+        String remoteAddress) {
+}
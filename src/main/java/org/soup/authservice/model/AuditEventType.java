@@ -0,0 +1,10 @@
+package org.soup.authservice.model;
+
+/**
+ * Requests recorded in the audit log.
+ */
+public enum AuditEventType {
+    SIGN_UP,
+    LOGIN,
+    REFRESH
+}
@@ -0,0 +1,14 @@
+package org.soup.authservice.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One record of a user import, carrying either a plain password or a BCrypt hash from the system the users come
+ * from. Fields the input did not provide are {@code null}.
+ */
+public record ImportedUser(
+        String username,
+        String password,
+        @JsonProperty("password_hash") String passwordHash) {
+    public static final ImportedUser UNREADABLE = new ImportedUser(null, null, null);
+}
@@ -0,0 +1,6 @@
+package org.soup.authservice.model;
+
+import java.util.List;
+
+public record IntrospectionBatch(List<String> tokens) {
+}
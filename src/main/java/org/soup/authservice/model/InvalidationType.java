@@ -0,0 +1,30 @@
+package org.soup.authservice.model;
+
+/**
+ * Kinds of in-memory state changes that other nodes have to apply as well. Each is sent as a single character.
+ */
+public enum InvalidationType {
+    TOKEN_REVOKED('t'),
+    USER_REVOKED('u'),
+    FAMILY_REVOKED('f'),
+    USERNAME_ADDED('n');
+
+    private final char code;
+
+    InvalidationType(char code) {
+        this.code = code;
+    }
+
+    public char code() {
+        return code;
+    }
+
+    public static InvalidationType fromCode(char code) {
+        for (InvalidationType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
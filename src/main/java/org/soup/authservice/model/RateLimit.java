@@ -0,0 +1,21 @@
+package org.soup.authservice.model;
+
+import java.time.Duration;
+
+/**
+ * Token bucket of {@code capacity} permits that refills completely over {@code period}.
+ */
+public record RateLimit(int capacity, Duration period) {
+    public RateLimit {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+    }
+
+    public long emissionIntervalMillis() {
+        return Math.max(period.toMillis() / capacity, 1);
+    }
+}
@@ -0,0 +1,41 @@
+package org.soup.authservice.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * @param type     {@link #ACCESS} or {@link #REFRESH}, {@code null} for tokens issued before the claim existed
+ * @param tokenId  {@code jti} of a refresh token
+ * @param familyId refresh token family the token belongs to
+ * @param role     {@link #ADMIN} for access tokens issued to an admin, {@code null} otherwise
+ */
+public record TokenClaims(
+        UUID id,
+        String username,
+        String type,
+        UUID tokenId,
+        UUID familyId,
+        Instant issuedAt,
+        Instant expiresAt,
+        String role) {
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+    public static final String ADMIN = "admin";
+
+    public TokenClaims(
+            UUID id, String username, String type, UUID tokenId, UUID familyId, Instant issuedAt, Instant expiresAt) {
+        this(id, username, type, tokenId, familyId, issuedAt, expiresAt, null);
+    }
+
+    public User toUser() {
+        return new User(id, username);
+    }
+
+    public boolean isAdmin() {
+        return ADMIN.equals(role);
+    }
+
+    public boolean isRefreshToken() {
+        return REFRESH.equals(type) && tokenId != null && familyId != null;
+    }
+}
@@ -0,0 +1,37 @@
+package org.soup.authservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+/**
+ * Introspection response as defined by RFC 7662. An inactive token is described by {@code active} alone, so the
+ * response does not tell why it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TokenIntrospection(
+        boolean active,
+        @JsonProperty("token_type") String tokenType,
+        String sub,
+        String username,
+        @JsonProperty("user_id") UUID userId,
+        String jti,
+        Long iat,
+        Long exp) {
+    public static final String ACCESS_TOKEN_TYPE = "access_token";
+    public static final TokenIntrospection INACTIVE =
+            new TokenIntrospection(false, null, null, null, null, null, null, null);
+
+    public static TokenIntrospection active(TokenClaims claims) {
+        return new TokenIntrospection(
+                true,
+                ACCESS_TOKEN_TYPE,
+                claims.username(),
+                claims.username(),
+                claims.id(),
+                claims.tokenId() == null ? null : claims.tokenId().toString(),
+                claims.issuedAt() == null ? null : claims.issuedAt().getEpochSecond(),
+                claims.expiresAt() == null ? null : claims.expiresAt().getEpochSecond());
+    }
+}
@@ -0,0 +1,17 @@
+package org.soup.authservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Progress of a user import. {@code records} counts the input records, skipped ones included, that are settled in the
+ * database, so an interrupted import can be resumed by skipping that many records.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserImportProgress(
+        long records,
+        long imported,
+        long existing,
+        long invalid,
+        boolean done,
+        String error) {
+}
@@ -0,0 +1,63 @@
+package org.soup.authservice.repository;
+
+import org.soup.authservice.repository.entity.RefreshTokenFamilyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamilyEntity, UUID> {
+    @Transactional
+    @Modifying
+    @Query(value = "insert into refresh_token_families (family_id, user_id, current_jti, expires_at) "
+            + "values (:familyId, :userId, :jti, :expiresAt)",
+            nativeQuery = true)
+    int insertFamily(
+            @Param("familyId") UUID familyId,
+            @Param("userId") UUID userId,
+            @Param("jti") UUID jti,
+            @Param("expiresAt") Instant expiresAt);
+
+    // Succeeds only for the token that is current, so a consumed token can never be rotated twice
+    @Transactional
+    @Modifying
+    @Query(value = "update refresh_token_families set current_jti = :nextJti, expires_at = :expiresAt "
+            + "where family_id = :familyId and current_jti = :jti and not revoked and expires_at > :now",
+            nativeQuery = true)
+    int rotate(
+            @Param("familyId") UUID familyId,
+            @Param("jti") UUID jti,
+            @Param("nextJti") UUID nextJti,
+            @Param("expiresAt") Instant expiresAt,
+            @Param("now") Instant now);
+
+    @Query(value = "select exists (select 1 from refresh_token_families "
+            + "where family_id = :familyId and current_jti = :jti and not revoked and expires_at > :now)",
+            nativeQuery = true)
+    boolean isCurrent(@Param("familyId") UUID familyId, @Param("jti") UUID jti, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update refresh_token_families set revoked = true where family_id = :familyId",
+            nativeQuery = true)
+    int revoke(@Param("familyId") UUID familyId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update refresh_token_families set revoked = true where user_id = :userId and not revoked",
+            nativeQuery = true)
+    int revokeAllForUser(@Param("userId") UUID userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from refresh_token_families where family_id in "
+            + "(select family_id from refresh_token_families where expires_at < :now limit :limit)",
+            nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now, @Param("limit") int limit);
+}
@@ -0,0 +1,32 @@
+package org.soup.authservice.repository;
+
+import org.soup.authservice.repository.entity.RevokedTokenEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenEntity, UUID> {
+    @Transactional
+    @Modifying
+    @Query(value = "insert into revoked_tokens (jti, expires_at) values (:jti, :expiresAt) on conflict do nothing",
+            nativeQuery = true)
+    int insertRevokedToken(@Param("jti") UUID jti, @Param("expiresAt") Instant expiresAt);
+
+    @Transactional(readOnly = true)
+    List<RevokedTokenEntity> findAllByExpiresAtAfter(Instant now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from revoked_tokens where jti in "
+            + "(select jti from revoked_tokens where expires_at < :now limit :limit)",
+            nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now, @Param("limit") int limit);
+}
@@ -1,13 +1,49 @@
 package org.soup.authservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.soup.authservice.repository.entity.UserEntity;
+import org.soup.authservice.repository.projection.UserCredentials;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, UUID> {
     Optional<UserEntity> findByUsername(String username);
+
+    // Login only needs these four columns, a DTO projection skips entity hydration and the persistence context
+    @Transactional(readOnly = true)
+    @Query("select new org.soup.authservice.repository.projection.UserCredentials(u.id, u.username, u.password, u.salt) "
+            + "from UserEntity u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
+    boolean existsByUsername(String username);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.username from UserEntity u")
+    Stream<String> streamAllUsernames();
+
+    // Relies on the unique constraint of users.username instead of checking for an existing user first
+    @Transactional
+    @Modifying
+    @Query(value = "insert into users (username, password, salt) values (:username, :password, :salt)",
+            nativeQuery = true)
+    int insertUser(
+            @Param("username") String username,
+            @Param("password") String password,
+            @Param("salt") String salt);
+
+    @Transactional
+    @Modifying
+    @Query("update UserEntity u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") UUID id, @Param("password") String password);
 }
@@ -0,0 +1,33 @@
+package org.soup.authservice.repository;
+
+import org.soup.authservice.repository.entity.UserTokenCutoffEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserTokenCutoffRepository extends JpaRepository<UserTokenCutoffEntity, UUID> {
+    @Transactional
+    @Modifying
+    @Query(value = "insert into user_token_cutoffs (user_id, not_before) values (:userId, :notBefore) "
+            + "on conflict (user_id) do update set not_before = greatest(user_token_cutoffs.not_before, :notBefore)",
+            nativeQuery = true)
+    int upsertCutoff(@Param("userId") UUID userId, @Param("notBefore") Instant notBefore);
+
+    @Transactional(readOnly = true)
+    List<UserTokenCutoffEntity> findAllByNotBeforeAfter(Instant threshold);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from user_token_cutoffs where user_id in "
+            + "(select user_id from user_token_cutoffs where not_before < :threshold limit :limit)",
+            nativeQuery = true)
+    int deleteExpired(@Param("threshold") Instant threshold, @Param("limit") int limit);
+}
@@ -0,0 +1,21 @@
+package org.soup.authservice.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedTokenEntity {
+    @Id
+    private UUID jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
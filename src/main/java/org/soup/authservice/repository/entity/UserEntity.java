@@ -23,6 +23,6 @@ public class UserEntity {
     @Column(nullable = false)
     private String salt;
 
-    @Column(name = "created_at", nullable = false)
-    private LocalDateTime createdAt = LocalDateTime.now();
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime createdAt;
 }
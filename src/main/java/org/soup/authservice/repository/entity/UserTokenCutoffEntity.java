@@ -0,0 +1,22 @@
+package org.soup.authservice.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "user_token_cutoffs")
+public class UserTokenCutoffEntity {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "not_before", nullable = false)
+    private Instant notBefore;
+}
@@ -0,0 +1,6 @@
+package org.soup.authservice.repository.projection;
+
+import java.util.UUID;
+
+public record UserCredentials(UUID id, String username, String password, String salt) {
+}
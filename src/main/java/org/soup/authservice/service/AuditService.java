@@ -0,0 +1,13 @@
+package org.soup.authservice.service;
+
+import org.soup.authservice.model.AuditEventType;
+
+import java.util.UUID;
+
+public interface AuditService {
+    /**
+     * Queues an event for the audit log without waiting for it to be written. The user id and username may be
+     * {@code null} when the request did not get far enough to know them.
+     */
+    void record(AuditEventType type, boolean success, UUID userId, String username, String remoteAddress);
+}
@@ -0,0 +1,368 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.AuditEvent;
+import org.soup.authservice.model.AuditEventType;
+import org.soup.authservice.utils.RingBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Audit log that keeps the database off the request path. Events go into a lock-free {@link RingBuffer} and a single
+ * background thread writes them in batches, each batch with one multi-row insert.
+ * <p>
+ * The table is range partitioned by month in UTC. Partitions are created ahead of time, and expired months are
+ * removed by dropping their partition instead of deleting rows. When the buffer is full an event is either dropped
+ * right away or, with the block policy, the request waits a bounded time for the writer to make room; a request never
+ * waits for the database itself.
+ */
+@Slf4j
+@Service
+public class AuditServiceImpl implements AuditService {
+    static final int MAX_USERNAME_LENGTH = 255;
+
+    static final int MAX_REMOTE_ADDRESS_LENGTH = 64;
+
+    static final String INSERT_PREFIX =
+            "insert into audit_events (occurred_at, event_type, success, user_id, username, remote_address) values ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+
+    private static final String TABLE = "audit_events";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_(\\d{4})_(\\d{2})");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // Partitions exist for the current month and the next one, so inserts never wait for a missed maintenance run
+    private static final int MONTHS_AHEAD = 1;
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private final boolean enabled;
+
+    private final RingBuffer<AuditEvent> buffer;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long blockTimeoutNanos;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final int retentionMonths;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Clock clock;
+
+    private final String fullBatchInsert;
+
+    private final Counter writtenEvents;
+
+    private final Counter droppedEvents;
+
+    private final Counter failedEvents;
+
+    private final Timer lag;
+
+    private volatile boolean running;
+
+    private volatile Thread writer;
+
+    @Autowired
+    public AuditServiceImpl(
+            @Value("${security.audit.enabled}") boolean enabled,
+            @Value("${security.audit.buffer-size}") int bufferSize,
+            @Value("${security.audit.overflow-policy}") String overflowPolicy,
+            @Value("${security.audit.block-timeout-millis}") long blockTimeoutMillis,
+            @Value("${security.audit.batch-size}") int batchSize,
+            @Value("${security.audit.flush-interval-millis}") long flushIntervalMillis,
+            @Value("${security.audit.retention-months}") int retentionMonths,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry) {
+        this(enabled, bufferSize, parsePolicy(overflowPolicy), blockTimeoutMillis, batchSize, flushIntervalMillis,
+                retentionMonths, jdbcTemplate, meterRegistry, Clock.systemUTC());
+    }
+
+    AuditServiceImpl(
+            boolean enabled,
+            int bufferSize,
+            OverflowPolicy overflowPolicy,
+            long blockTimeoutMillis,
+            int batchSize,
+            long flushIntervalMillis,
+            int retentionMonths,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            Clock clock) {
+        // Six parameters per row, Postgres accepts at most 65535 in one statement
+        if (batchSize < 1 || batchSize > 10_000) {
+            throw new IllegalArgumentException("Audit batch size must be between 1 and 10000: " + batchSize);
+        }
+
+        this.enabled = enabled;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.retentionMonths = retentionMonths;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.fullBatchInsert = insertStatement(batchSize);
+
+        this.writtenEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "written")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.failedEvents = Counter.builder("audit.events")
+                .description("Audit events by what became of them")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        this.lag = Timer.builder("audit.lag")
+                .description("Time from an audit event to its insert")
+                .register(meterRegistry);
+        Gauge.builder("audit.buffer.pending", buffer, RingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    private static OverflowPolicy parsePolicy(String policy) {
+        try {
+            return OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Audit overflow policy must be drop or block: " + policy, e);
+        }
+    }
+
+    /**
+     * Makes sure this month has a partition before the first event arrives, then starts the writer.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        maintainPartitions();
+        running = true;
+        Thread thread = new Thread(this::write, "audit-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the writer after it has written what is still buffered.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        Thread thread = writer;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void record(AuditEventType type, boolean success, UUID userId, String username, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+
+        AuditEvent event = new AuditEvent(clock.instant(), type, success, userId,
+                truncate(username, MAX_USERNAME_LENGTH), truncate(remoteAddress, MAX_REMOTE_ADDRESS_LENGTH));
+        if (buffer.offer(event)) {
+            // A full batch is written right away instead of at the end of the flush interval
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return;
+        }
+
+        if (overflowPolicy == OverflowPolicy.BLOCK && offerWithinTimeout(event)) {
+            return;
+        }
+        droppedEvents.increment();
+    }
+
+    private boolean offerWithinTimeout(AuditEvent event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        do {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private void write() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (flush(batch) < batchSize) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+        while (flush(batch) > 0) {
+            // Shutting down, write what is left
+        }
+    }
+
+    /**
+     * Writes at most one batch of buffered events. Must only be called from one thread at a time.
+     *
+     * @return the number of events taken from the buffer
+     */
+    int flush(List<AuditEvent> batch) {
+        batch.clear();
+        int count = buffer.drainTo(batch, batchSize);
+        if (count == 0) {
+            return 0;
+        }
+
+        String sql = count == batchSize ? fullBatchInsert : insertStatement(count);
+        try {
+            jdbcTemplate.update(sql, statement -> bind(statement, batch));
+        } catch (DataAccessException e) {
+            // Not retried, a database that is down would otherwise fill the buffer and block requests behind it
+            failedEvents.increment(count);
+            log.warn("Failed to write {} audit events", count, e);
+            return count;
+        }
+
+        Instant now = clock.instant();
+        for (AuditEvent event : batch) {
+            lag.record(Duration.between(event.occurredAt(), now));
+        }
+        writtenEvents.increment(count);
+        return count;
+    }
+
+    static String insertStatement(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 2))
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement statement, List<AuditEvent> batch) throws SQLException {
+        int index = 1;
+        for (AuditEvent event : batch) {
+            statement.setTimestamp(index++, Timestamp.from(event.occurredAt()));
+            statement.setString(index++, event.type().name());
+            statement.setBoolean(index++, event.success());
+            if (event.userId() == null) {
+                statement.setNull(index++, Types.OTHER);
+            } else {
+                statement.setObject(index++, event.userId());
+            }
+            statement.setString(index++, event.username());
+            statement.setString(index++, event.remoteAddress());
+        }
+    }
+
+    /**
+     * Creates the partitions for this month and the next one, and drops those older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${security.audit.partition-check-interval-millis}",
+            initialDelayString = "${security.audit.partition-check-interval-millis}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+        try {
+            for (int i = 0; i <= MONTHS_AHEAD; i++) {
+                createPartition(current.plusMonths(i));
+            }
+            if (retentionMonths > 0) {
+                dropPartitionsBefore(current.minusMonths(retentionMonths));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to maintain the audit log partitions", e);
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute("create table if not exists " + partitionName(month)
+                + " partition of " + TABLE
+                + " for values from ('" + month.atDay(1) + " 00:00:00+00')"
+                + " to ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+    }
+
+    private void dropPartitionsBefore(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                select child.relname
+                from pg_inherits
+                join pg_class parent on parent.oid = pg_inherits.inhparent
+                join pg_class child on child.oid = pg_inherits.inhrelid
+                where parent.relname = ?""", String.class, TABLE);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (matcher.matches() && YearMonth.of(Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2))).isBefore(cutoff)) {
+                jdbcTemplate.execute("drop table if exists " + partition);
+                log.info("Dropped expired audit log partition {}", partition);
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -2,8 +2,10 @@ package org.soup.authservice.service;
 
 import org.soup.authservice.model.User;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthService {
-    void registerUser(String username, String password);
+    CompletableFuture<Void> registerUser(String username, String password);
 
-    User authenticateUser(String username, String password);
+    CompletableFuture<User> authenticateUser(String username, String password);
 }
@@ -1,47 +1,128 @@
 package org.soup.authservice.service;
 
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.soup.authservice.exception.UserAlreadyExistsException;
 import org.soup.authservice.model.User;
 import org.soup.authservice.repository.UserRepository;
-import org.soup.authservice.repository.entity.UserEntity;
+import org.soup.authservice.repository.projection.UserCredentials;
+import org.soup.authservice.utils.PasswordHashingExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
 @Service
 public class AuthServiceImpl implements AuthService {
+    private static final String DUMMY_SALT = RandomStringUtils.randomAlphanumeric(20);
+
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
-    public AuthServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private final PasswordHashingExecutor hashingExecutor;
+
+    private final UsernameFilterService usernameFilterService;
+
+    // Continues requests after hashing, so the hashing pool never waits on the database
+    private final Executor requestExecutor;
+
+    // Hashed with the current encoder so a rejected unknown user costs as much as a wrong password
+    private final String dummyPassword;
+
+    public AuthServiceImpl(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            PasswordHashingExecutor hashingExecutor,
+            UsernameFilterService usernameFilterService,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor requestExecutor) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.usernameFilterService = usernameFilterService;
+        this.requestExecutor = requestExecutor;
+        this.dummyPassword = passwordEncoder.encode(DUMMY_SALT + RandomStringUtils.randomAlphanumeric(20));
     }
 
+    // Only the password encoder runs on the hashing pool, database calls run on the caller or the request executor
     @Override
-    public void registerUser(String username, String password) {
-        if (userRepository.findByUsername(username).isPresent()) {
-            throw new IllegalArgumentException("User already exists");
+    public CompletableFuture<Void> registerUser(String username, String password) {
+        // Duplicates are rejected before hashing, the exists query only runs when the filter cannot rule them out
+        if (usernameFilterService.mightExist(username) && userRepository.existsByUsername(username)) {
+            return CompletableFuture.failedFuture(new UserAlreadyExistsException("User already exists"));
         }
-        UserEntity user = new UserEntity();
 
         String randomSalt = RandomStringUtils.randomAlphanumeric(20);
-        user.setUsername(username);
-        user.setSalt(randomSalt);
-        user.setPassword(passwordEncoder.encode(randomSalt + password));
-        userRepository.save(user);
+        return hashingExecutor.submit(() -> passwordEncoder.encode(randomSalt + password))
+                .thenAcceptAsync(encodedPassword -> {
+                    try {
+                        userRepository.insertUser(username, encodedPassword, randomSalt);
+                    } catch (DataIntegrityViolationException e) {
+                        throw new UserAlreadyExistsException("User already exists");
+                    }
+                    usernameFilterService.add(username);
+                }, requestExecutor);
     }
 
     @Override
-    public User authenticateUser(String username, String password) {
-        UserEntity userEntity = userRepository.findByUsername(username)
-                .orElseThrow(() -> new BadCredentialsException("Invalid username or password"));
-        String salt = userEntity.getSalt();
-        if (!passwordEncoder.matches(salt + password, userEntity.getPassword())) {
+    public CompletableFuture<User> authenticateUser(String username, String password) {
+        // Unknown usernames are answered without a database query, but only after a full hash so timing stays equal
+        if (!usernameFilterService.mightExist(username)) {
+            return rejectAfterDummyHash(password);
+        }
+
+        Optional<UserCredentials> found = userRepository.findCredentialsByUsername(username);
+        if (found.isEmpty()) {
+            return rejectAfterDummyHash(password);
+        }
+
+        UserCredentials credentials = found.get();
+        String salt = credentials.salt();
+        String encodedPassword = credentials.password();
+        return hashingExecutor.submit(() -> {
+            if (!passwordEncoder.matches(salt + password, encodedPassword)) {
+                throw new BadCredentialsException("Invalid username or password");
+            }
+            if (passwordEncoder.upgradeEncoding(encodedPassword)) {
+                scheduleRehash(credentials.id(), salt + password);
+            }
+            return new User(credentials.id(), credentials.username());
+        });
+    }
+
+    private CompletableFuture<User> rejectAfterDummyHash(String password) {
+        return hashingExecutor.submit(() -> {
+            passwordEncoder.matches(DUMMY_SALT + password, dummyPassword);
             throw new BadCredentialsException("Invalid username or password");
+        });
+    }
+
+    /**
+     * Upgrades the stored hash in a task of its own, so the login does not wait for a second hash and the update. The
+     * old hash stays valid, so a rehash dropped by a full pool or a failed update is simply retried on the next login.
+     */
+    private void scheduleRehash(UUID id, String saltedPassword) {
+        CompletableFuture<String> rehash;
+        try {
+            rehash = hashingExecutor.submit(() -> passwordEncoder.encode(saltedPassword));
+        } catch (RejectedExecutionException e) {
+            log.debug("Hashing pool is full, skipped upgrading the password hash of user {}", id);
+            return;
         }
-        return new User(userEntity.getId(), userEntity.getUsername());
+        rehash.thenAcceptAsync(encodedPassword -> userRepository.updatePassword(id, encodedPassword), requestExecutor)
+                .exceptionally(e -> {
+                    log.warn("Failed to upgrade password hash of user {}", id, e);
+                    return null;
+                });
     }
 }
@@ -0,0 +1,24 @@
+package org.soup.authservice.service;
+
+import org.soup.authservice.model.TokenIntrospection;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface IntrospectionService {
+    /**
+     * Checks the HTTP Basic credentials of the client calling the introspection endpoint.
+     *
+     * @throws org.soup.authservice.exception.InvalidClientException if they are missing or wrong
+     */
+    void authenticateClient(String authorization);
+
+    TokenIntrospection introspect(String token);
+
+    /**
+     * Introspects the tokens lazily and in order, so the results can be written out as they are produced.
+     *
+     * @throws IllegalArgumentException if the batch is larger than allowed
+     */
+    Stream<TokenIntrospection> introspectAll(List<String> tokens);
+}
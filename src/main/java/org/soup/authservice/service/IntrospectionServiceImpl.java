@@ -0,0 +1,116 @@
+package org.soup.authservice.service;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.exception.InvalidClientException;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.TokenIntrospection;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class IntrospectionServiceImpl implements IntrospectionService {
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final JwtUtils jwtUtils;
+
+    private final TokenRevocationService revocationService;
+
+    private final String clientId;
+
+    // Compared as digests so the comparison takes the same time whatever the length of the presented secret
+    private final byte[] clientSecretDigest;
+
+    private final int maxBatchSize;
+
+    public IntrospectionServiceImpl(
+            JwtUtils jwtUtils,
+            TokenRevocationService revocationService,
+            @Value("${security.introspection.client-id}") String clientId,
+            @Value("${security.introspection.client-secret}") String clientSecret,
+            @Value("${security.introspection.max-batch-size}") int maxBatchSize) {
+        this.jwtUtils = jwtUtils;
+        this.revocationService = revocationService;
+        this.clientId = clientId;
+        this.clientSecretDigest = clientSecret.isEmpty() ? null : sha256(clientSecret);
+        this.maxBatchSize = maxBatchSize;
+        if (clientSecretDigest == null) {
+            log.info("No introspection client secret configured, /introspect rejects every client");
+        }
+    }
+
+    @Override
+    public void authenticateClient(String authorization) {
+        if (clientSecretDigest == null || authorization == null || !authorization.startsWith(BASIC_PREFIX)) {
+            throw new InvalidClientException("Client authentication required");
+        }
+
+        String credentials;
+        try {
+            credentials = new String(
+                    Base64.getDecoder().decode(authorization.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidClientException("Client authentication required");
+        }
+
+        int separator = credentials.indexOf(':');
+        if (separator < 0) {
+            throw new InvalidClientException("Invalid client credentials");
+        }
+        boolean secretMatches =
+                MessageDigest.isEqual(sha256(credentials.substring(separator + 1)), clientSecretDigest);
+        if (!secretMatches || !clientId.equals(credentials.substring(0, separator))) {
+            throw new InvalidClientException("Invalid client credentials");
+        }
+    }
+
+    @Override
+    public TokenIntrospection introspect(String token) {
+        if (token == null || token.isEmpty()) {
+            return TokenIntrospection.INACTIVE;
+        }
+
+        TokenClaims claims;
+        try {
+            claims = jwtUtils.verifyAndDecode(token);
+        } catch (JWTVerificationException e) {
+            return TokenIntrospection.INACTIVE;
+        }
+        // Like the authentication filter, only access tokens are good for calling other services
+        if (!TokenClaims.ACCESS.equals(claims.type()) || revocationService.isRevoked(claims)) {
+            return TokenIntrospection.INACTIVE;
+        }
+
+        return TokenIntrospection.active(claims);
+    }
+
+    @Override
+    public Stream<TokenIntrospection> introspectAll(List<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            throw new IllegalArgumentException("No tokens to introspect");
+        }
+        if (tokens.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " tokens can be introspected at once");
+        }
+
+        return tokens.stream().map(this::introspect);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
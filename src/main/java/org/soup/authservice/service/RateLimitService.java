@@ -0,0 +1,7 @@
+package org.soup.authservice.service;
+
+public interface RateLimitService {
+    void checkAuth(String username, String clientIp);
+
+    void checkSignUp(String username, String clientIp);
+}
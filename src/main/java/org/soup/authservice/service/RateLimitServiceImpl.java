@@ -0,0 +1,75 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.soup.authservice.exception.RateLimitExceededException;
+import org.soup.authservice.model.RateLimit;
+import org.soup.authservice.utils.RateLimiterBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public class RateLimitServiceImpl implements RateLimitService {
+    private final RateLimiterBackend backend;
+
+    private final boolean enabled;
+
+    private final RateLimit usernameLimit;
+
+    private final RateLimit ipLimit;
+
+    private final Counter usernameRejections;
+
+    private final Counter ipRejections;
+
+    public RateLimitServiceImpl(
+            RateLimiterBackend backend,
+            MeterRegistry meterRegistry,
+            @Value("${security.rate-limit.enabled}") boolean enabled,
+            @Value("${security.rate-limit.username.capacity}") int usernameCapacity,
+            @Value("${security.rate-limit.username.period-millis}") long usernamePeriodMillis,
+            @Value("${security.rate-limit.ip.capacity}") int ipCapacity,
+            @Value("${security.rate-limit.ip.period-millis}") long ipPeriodMillis) {
+        this.backend = backend;
+        this.enabled = enabled;
+        this.usernameLimit = new RateLimit(usernameCapacity, Duration.ofMillis(usernamePeriodMillis));
+        this.ipLimit = new RateLimit(ipCapacity, Duration.ofMillis(ipPeriodMillis));
+        this.usernameRejections = Counter.builder("rate.limiter.rejections")
+                .tag("key", "username")
+                .register(meterRegistry);
+        this.ipRejections = Counter.builder("rate.limiter.rejections")
+                .tag("key", "ip")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void checkAuth(String username, String clientIp) {
+        check("auth", username, clientIp);
+    }
+
+    @Override
+    public void checkSignUp(String username, String clientIp) {
+        check("sign-up", username, clientIp);
+    }
+
+    // The IP bucket is checked first so that one client cycling through usernames does not drain their buckets
+    private void check(String endpoint, String username, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+
+        long retryAfterMillis = backend.tryAcquire(endpoint + ":ip:" + clientIp, ipLimit);
+        if (retryAfterMillis > 0) {
+            ipRejections.increment();
+            throw new RateLimitExceededException("Too many requests, try again later", retryAfterMillis);
+        }
+
+        retryAfterMillis = backend.tryAcquire(endpoint + ":user:" + username, usernameLimit);
+        if (retryAfterMillis > 0) {
+            usernameRejections.increment();
+            throw new RateLimitExceededException("Too many requests, try again later", retryAfterMillis);
+        }
+    }
+}
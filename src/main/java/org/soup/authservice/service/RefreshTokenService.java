@@ -0,0 +1,42 @@
+package org.soup.authservice.service;
+
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenService {
+    /**
+     * Starts a new token family for a login and returns its first refresh token.
+     */
+    String createFamily(User user, UUID familyId);
+
+    /**
+     * Consumes a verified refresh token and returns its successor. Presenting a token that was already consumed
+     * revokes the whole family.
+     *
+     * @throws org.springframework.security.web.authentication.rememberme.InvalidCookieException if the token is not
+     *                                                                                           the current one
+     */
+    String rotate(TokenClaims claims);
+
+    /**
+     * Rotates a verified refresh token once it has used up the configured share of its lifetime. A fresher token that
+     * is still the family's current one stays in use and nothing is returned.
+     *
+     * @throws org.springframework.security.web.authentication.rememberme.InvalidCookieException if the token is not
+     *                                                                                           the current one
+     */
+    Optional<String> refresh(TokenClaims claims);
+
+    /**
+     * Revokes a token family, so none of its refresh tokens can be used again.
+     */
+    void revokeFamily(UUID familyId);
+
+    /**
+     * Revokes every refresh token family of the user.
+     */
+    void revokeAll(UUID userId);
+}
@@ -0,0 +1,210 @@
+package org.soup.authservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.utils.InvalidationBus;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+    private final RefreshTokenFamilyRepository familyRepository;
+
+    private final JwtUtils jwtUtils;
+
+    private final InvalidationBus invalidationBus;
+
+    private final long refreshTokenExpirationMillis;
+
+    private final double rotationThreshold;
+
+    private final int sweepBatchSize;
+
+    private final Clock clock;
+
+    // Revocation is final, so families known to be revoked are rejected without a database round trip
+    private final Cache<UUID, Boolean> revokedFamilies;
+
+    private final Counter reuseDetections;
+
+    private final Counter rotatedRefreshes;
+
+    private final Counter keptRefreshes;
+
+    @Autowired
+    public RefreshTokenServiceImpl(
+            RefreshTokenFamilyRepository familyRepository,
+            JwtUtils jwtUtils,
+            InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            @Value("${security.refresh-token.expirationMillis}") long refreshTokenExpirationMillis,
+            @Value("${security.refresh-token.rotation-threshold}") double rotationThreshold,
+            @Value("${security.refresh-token.revoked-cache-size}") long revokedCacheSize,
+            @Value("${security.refresh-token.sweep-batch-size}") int sweepBatchSize) {
+        this(familyRepository, jwtUtils, invalidationBus, meterRegistry, refreshTokenExpirationMillis, rotationThreshold,
+                revokedCacheSize, sweepBatchSize, Clock.systemUTC());
+    }
+
+    RefreshTokenServiceImpl(
+            RefreshTokenFamilyRepository familyRepository,
+            JwtUtils jwtUtils,
+            InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            long refreshTokenExpirationMillis,
+            double rotationThreshold,
+            long revokedCacheSize,
+            int sweepBatchSize,
+            Clock clock) {
+        if (rotationThreshold < 0 || rotationThreshold > 1) {
+            throw new IllegalArgumentException("Refresh token rotation threshold must be between 0 and 1: "
+                    + rotationThreshold);
+        }
+
+        this.familyRepository = familyRepository;
+        this.jwtUtils = jwtUtils;
+        this.invalidationBus = invalidationBus;
+        this.refreshTokenExpirationMillis = refreshTokenExpirationMillis;
+        this.rotationThreshold = rotationThreshold;
+        this.sweepBatchSize = sweepBatchSize;
+        this.clock = clock;
+        this.revokedFamilies = Caffeine.newBuilder()
+                .maximumSize(revokedCacheSize)
+                .expireAfterWrite(Duration.ofMillis(refreshTokenExpirationMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, revokedFamilies, "revoked-refresh-token-families");
+        this.reuseDetections = Counter.builder("refresh.token.reuse")
+                .description("Consumed refresh tokens presented again, each revoking its family")
+                .register(meterRegistry);
+        this.rotatedRefreshes = Counter.builder("refresh.token.refreshes")
+                .description("Refreshes by whether the refresh token was rotated or stayed in use")
+                .tag("rotated", "true")
+                .register(meterRegistry);
+        this.keptRefreshes = Counter.builder("refresh.token.refreshes")
+                .description("Refreshes by whether the refresh token was rotated or stayed in use")
+                .tag("rotated", "false")
+                .register(meterRegistry);
+
+        invalidationBus.subscribe(InvalidationType.FAMILY_REVOKED,
+                key -> revokedFamilies.put(UUID.fromString(key), Boolean.TRUE));
+    }
+
+    @Override
+    public String createFamily(User user, UUID familyId) {
+        UUID tokenId = UUID.randomUUID();
+        familyRepository.insertFamily(familyId, user.id(), tokenId, expiresAt());
+        return jwtUtils.generateRefreshToken(user, familyId, tokenId, refreshTokenExpirationMillis);
+    }
+
+    @Override
+    public String rotate(TokenClaims claims) {
+        checkNotRevoked(claims);
+
+        UUID nextTokenId = UUID.randomUUID();
+        int rotated = familyRepository.rotate(
+                claims.familyId(), claims.tokenId(), nextTokenId, expiresAt(), clock.instant());
+        if (rotated == 0) {
+            throw reuseDetected(claims);
+        }
+
+        return jwtUtils.generateRefreshToken(
+                claims.toUser(), claims.familyId(), nextTokenId, refreshTokenExpirationMillis);
+    }
+
+    @Override
+    public Optional<String> refresh(TokenClaims claims) {
+        if (isRotationDue(claims)) {
+            String next = rotate(claims);
+            rotatedRefreshes.increment();
+            return Optional.of(next);
+        }
+
+        // A fresh token is not consumed, but reuse of one that was already rotated away is still caught here
+        checkNotRevoked(claims);
+        if (!familyRepository.isCurrent(claims.familyId(), claims.tokenId(), clock.instant())) {
+            throw reuseDetected(claims);
+        }
+        keptRefreshes.increment();
+        return Optional.empty();
+    }
+
+    private boolean isRotationDue(TokenClaims claims) {
+        if (claims.issuedAt() == null || claims.expiresAt() == null) {
+            return true;
+        }
+
+        long lifetimeMillis = Duration.between(claims.issuedAt(), claims.expiresAt()).toMillis();
+        long ageMillis = Duration.between(claims.issuedAt(), clock.instant()).toMillis();
+        return ageMillis >= lifetimeMillis * rotationThreshold;
+    }
+
+    private void checkNotRevoked(TokenClaims claims) {
+        if (!claims.isRefreshToken()) {
+            throw new InvalidCookieException("Refresh token invalid");
+        }
+        if (revokedFamilies.getIfPresent(claims.familyId()) != null) {
+            throw new InvalidCookieException("Refresh token revoked");
+        }
+    }
+
+    // The token verified but is not the family's current one: it was consumed before, or the family is gone
+    private InvalidCookieException reuseDetected(TokenClaims claims) {
+        revokeFamily(claims.familyId());
+        reuseDetections.increment();
+        log.warn("Refresh token reuse detected, revoked token family {} of user {}", claims.familyId(), claims.id());
+        return new InvalidCookieException("Refresh token revoked");
+    }
+
+    @Override
+    public void revokeFamily(UUID familyId) {
+        familyRepository.revoke(familyId);
+        revokedFamilies.put(familyId, Boolean.TRUE);
+        invalidationBus.publish(InvalidationType.FAMILY_REVOKED, familyId.toString());
+    }
+
+    @Override
+    public void revokeAll(UUID userId) {
+        familyRepository.revokeAllForUser(userId);
+    }
+
+    /**
+     * Deletes expired families in batches, each in its own short transaction, so the sweep never holds many row locks.
+     */
+    @Scheduled(fixedDelayString = "${security.refresh-token.sweep-interval-millis}")
+    public void purgeExpired() {
+        Instant now = clock.instant();
+        long deleted = 0;
+        int batch;
+        do {
+            batch = familyRepository.deleteExpired(now, sweepBatchSize);
+            deleted += batch;
+        } while (batch == sweepBatchSize);
+
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh token families", deleted);
+        }
+    }
+
+    private Instant expiresAt() {
+        return clock.instant().plusMillis(refreshTokenExpirationMillis);
+    }
+}
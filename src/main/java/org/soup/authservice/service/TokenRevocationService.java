@@ -0,0 +1,22 @@
+package org.soup.authservice.service;
+
+import org.soup.authservice.model.TokenClaims;
+
+import java.util.UUID;
+
+public interface TokenRevocationService {
+    /**
+     * Checks verified claims against the in-memory revocation list, without touching the database.
+     */
+    boolean isRevoked(TokenClaims claims);
+
+    /**
+     * Revokes a single token until it expires.
+     */
+    void revokeToken(TokenClaims claims);
+
+    /**
+     * Revokes every token issued to the user so far, along with their refresh token families.
+     */
+    void revokeUser(UUID userId);
+}
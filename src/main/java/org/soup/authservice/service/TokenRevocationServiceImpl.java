@@ -0,0 +1,179 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.repository.RevokedTokenRepository;
+import org.soup.authservice.repository.UserTokenCutoffRepository;
+import org.soup.authservice.repository.entity.RevokedTokenEntity;
+import org.soup.authservice.repository.entity.UserTokenCutoffEntity;
+import org.soup.authservice.utils.InvalidationBus;
+import org.soup.authservice.utils.RevocationList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+@Slf4j
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    private final UserTokenCutoffRepository cutoffRepository;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final InvalidationBus invalidationBus;
+
+    private final RevocationList revocationList;
+
+    private final long maxTokenLifetimeMillis;
+
+    private final int sweepBatchSize;
+
+    private final Clock clock;
+
+    @Autowired
+    public TokenRevocationServiceImpl(
+            RevokedTokenRepository revokedTokenRepository,
+            UserTokenCutoffRepository cutoffRepository,
+            RefreshTokenService refreshTokenService,
+            InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            @Value("${security.revocation.bucket-millis}") long bucketMillis,
+            @Value("${security.refresh-token.expirationMillis}") long maxTokenLifetimeMillis,
+            @Value("${security.revocation.sweep-batch-size}") int sweepBatchSize) {
+        this(revokedTokenRepository, cutoffRepository, refreshTokenService, invalidationBus, meterRegistry,
+                bucketMillis, maxTokenLifetimeMillis, sweepBatchSize, Clock.systemUTC());
+    }
+
+    TokenRevocationServiceImpl(
+            RevokedTokenRepository revokedTokenRepository,
+            UserTokenCutoffRepository cutoffRepository,
+            RefreshTokenService refreshTokenService,
+            InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            long bucketMillis,
+            long maxTokenLifetimeMillis,
+            int sweepBatchSize,
+            Clock clock) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.cutoffRepository = cutoffRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.invalidationBus = invalidationBus;
+        this.revocationList = new RevocationList(bucketMillis, maxTokenLifetimeMillis);
+        this.maxTokenLifetimeMillis = maxTokenLifetimeMillis;
+        this.sweepBatchSize = sweepBatchSize;
+        this.clock = clock;
+
+        Gauge.builder("revocation.list.tokens", revocationList, RevocationList::revokedTokenCount)
+                .description("Revoked tokens held in memory until they expire")
+                .register(meterRegistry);
+        Gauge.builder("revocation.list.user.cutoffs", revocationList, RevocationList::userCutoffCount)
+                .description("Users whose earlier tokens are all revoked")
+                .register(meterRegistry);
+
+        // Keys are "<id>,<epoch millis>": the token id and its expiry, or the user id and the cutoff
+        invalidationBus.subscribe(InvalidationType.TOKEN_REVOKED, key -> {
+            String[] parts = key.split(",");
+            revocationList.revokeToken(UUID.fromString(parts[0]), Instant.ofEpochMilli(Long.parseLong(parts[1])));
+        });
+        invalidationBus.subscribe(InvalidationType.USER_REVOKED, key -> {
+            String[] parts = key.split(",");
+            revocationList.revokeIssuedBefore(
+                    UUID.fromString(parts[0]), Instant.ofEpochMilli(Long.parseLong(parts[1])));
+        });
+        invalidationBus.onResync(this::load);
+    }
+
+    @Override
+    public boolean isRevoked(TokenClaims claims) {
+        return revocationList.isRevoked(claims);
+    }
+
+    @Override
+    public void revokeToken(TokenClaims claims) {
+        if (claims.tokenId() == null || claims.expiresAt() == null) {
+            // Tokens issued before they carried a jti can only be revoked together with the rest of the user's
+            revokeUser(claims.id());
+            return;
+        }
+
+        revokedTokenRepository.insertRevokedToken(claims.tokenId(), claims.expiresAt());
+        revocationList.revokeToken(claims.tokenId(), claims.expiresAt());
+        invalidationBus.publish(InvalidationType.TOKEN_REVOKED,
+                claims.tokenId() + "," + claims.expiresAt().toEpochMilli());
+    }
+
+    @Override
+    public void revokeUser(UUID userId) {
+        // iat has a resolution of one second, so tokens issued during the current second are revoked as well
+        Instant cutoff = clock.instant().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        cutoffRepository.upsertCutoff(userId, cutoff);
+        revocationList.revokeIssuedBefore(userId, cutoff);
+        invalidationBus.publish(InvalidationType.USER_REVOKED, userId + "," + cutoff.toEpochMilli());
+        refreshTokenService.revokeAll(userId);
+        log.info("Revoked all tokens of user {} issued before {}", userId, cutoff);
+    }
+
+    /**
+     * Runs before the application reports itself ready, so traffic is never served with an empty list.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        Instant now = clock.instant();
+        int tokens = 0;
+        for (RevokedTokenEntity token : revokedTokenRepository.findAllByExpiresAtAfter(now)) {
+            revocationList.revokeToken(token.getJti(), token.getExpiresAt());
+            tokens++;
+        }
+        int cutoffs = 0;
+        for (UserTokenCutoffEntity cutoff : cutoffRepository.findAllByNotBeforeAfter(lifetimeStart(now))) {
+            revocationList.revokeIssuedBefore(cutoff.getUserId(), cutoff.getNotBefore());
+            cutoffs++;
+        }
+        log.info("Loaded {} revoked tokens and {} user cutoffs in {} ms",
+                tokens, cutoffs, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Drops revocations of tokens that have expired anyway, from memory and, in batches, from the database.
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.sweep-interval-millis}")
+    public void purgeExpired() {
+        Instant now = clock.instant();
+        revocationList.purge(now);
+
+        long tokens = deleteInBatches(() -> revokedTokenRepository.deleteExpired(now, sweepBatchSize));
+        long cutoffs = deleteInBatches(() -> cutoffRepository.deleteExpired(lifetimeStart(now), sweepBatchSize));
+        if (tokens > 0 || cutoffs > 0) {
+            log.info("Purged {} expired token revocations and {} user cutoffs", tokens, cutoffs);
+        }
+    }
+
+    private long deleteInBatches(IntSupplier deleteBatch) {
+        long deleted = 0;
+        int batch;
+        do {
+            batch = deleteBatch.getAsInt();
+            deleted += batch;
+        } while (batch == sweepBatchSize);
+        return deleted;
+    }
+
+    // A cutoff older than this cannot match any token that has not yet expired
+    private Instant lifetimeStart(Instant now) {
+        return now.minusMillis(maxTokenLifetimeMillis);
+    }
+}
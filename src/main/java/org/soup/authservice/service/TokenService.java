@@ -3,9 +3,20 @@ package org.soup.authservice.service;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.soup.authservice.model.User;
+import org.springframework.http.HttpHeaders;
 
 public interface TokenService {
     void addAuthCookiesToResponse(User user, HttpServletResponse response);
 
-    void refreshTokens(HttpServletRequest request, HttpServletResponse response);
+    HttpHeaders createAuthCookieHeaders(User user);
+
+    /**
+     * @return the user the refreshed tokens belong to
+     */
+    User refreshTokens(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Revokes the tokens in the request cookies and returns headers that clear them.
+     */
+    HttpHeaders logout(HttpServletRequest request);
 }
@@ -1,79 +1,128 @@
 package org.soup.authservice.service;
 
-import jakarta.servlet.http.Cookie;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.soup.authservice.model.TokenClaims;
 import org.soup.authservice.model.User;
+import org.soup.authservice.utils.AuthCookies;
 import org.soup.authservice.utils.JwtUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 @Service
 public class TokenServiceImpl implements TokenService {
-    private static final String ACCESS_TOKEN_NAME = "Soup-Access-Token";
-    private static final String REFRESH_TOKEN_NAME = "Soup-Refresh-Token";
-
     private final JwtUtils jwtUtils;
 
-    @Value("${security.access-token.expirationMillis}")
-    private Long accessTokenExpirationMillis;
+    private final RefreshTokenService refreshTokenService;
+
+    private final TokenRevocationService revocationService;
+
+    private final AuthCookies authCookies;
 
-    @Value("${security.refresh-token.expirationMillis}")
-    private Long refreshTokenExpirationMillis;
+    private final long accessTokenExpirationMillis;
 
-    public TokenServiceImpl(JwtUtils jwtUtils) {
+    public TokenServiceImpl(
+            JwtUtils jwtUtils,
+            RefreshTokenService refreshTokenService,
+            TokenRevocationService revocationService,
+            AuthCookies authCookies,
+            @Value("${security.access-token.expirationMillis}") long accessTokenExpirationMillis) {
         this.jwtUtils = jwtUtils;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationService = revocationService;
+        this.authCookies = authCookies;
+        this.accessTokenExpirationMillis = accessTokenExpirationMillis;
     }
 
     @Override
     public void addAuthCookiesToResponse(User user, HttpServletResponse response) {
-        String accessToken = jwtUtils.generateToken(user, accessTokenExpirationMillis);
-        String refreshToken = jwtUtils.generateToken(user, refreshTokenExpirationMillis);
+        login(user, response::addHeader);
+    }
+
+    @Override
+    public HttpHeaders createAuthCookieHeaders(User user) {
+        HttpHeaders headers = new HttpHeaders();
+        login(user, headers::add);
+        return headers;
+    }
+
+    // Both cookies are written as plain Set-Cookie headers, whether they go to the response or to HttpHeaders
+    private void login(User user, BiConsumer<String, String> headers) {
+        UUID familyId = UUID.randomUUID();
+        String refreshToken = refreshTokenService.createFamily(user, familyId);
+        addAccessCookie(user, familyId, headers);
+        headers.accept(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(refreshToken));
+    }
 
-        addCookie(response, ACCESS_TOKEN_NAME, accessToken, null, accessTokenExpirationMillis);
-        addCookie(response, REFRESH_TOKEN_NAME, refreshToken, "/refresh", 2592000000L);
+    private void addAccessCookie(User user, UUID familyId, BiConsumer<String, String> headers) {
+        String accessToken = jwtUtils.generateToken(user, familyId, accessTokenExpirationMillis);
+        headers.accept(HttpHeaders.SET_COOKIE, authCookies.accessCookie(accessToken));
     }
 
     @Override
-    public void refreshTokens(HttpServletRequest request, HttpServletResponse response) {
-        String refreshToken = getCookieValue(request, REFRESH_TOKEN_NAME)
-                .orElseThrow(() -> new InvalidCookieException("Refresh token not found"));
+    public User refreshTokens(HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = AuthCookies.read(request, AuthCookies.REFRESH_TOKEN_NAME);
+        if (refreshToken == null) {
+            throw new InvalidCookieException("Refresh token not found");
+        }
 
-        if (!jwtUtils.verifyToken(refreshToken)) {
+        TokenClaims claims;
+        try {
+            claims = jwtUtils.verifyAndDecode(refreshToken);
+        } catch (JWTVerificationException e) {
             throw new InvalidCookieException("Refresh token invalid");
         }
+        if (revocationService.isRevoked(claims)) {
+            throw new InvalidCookieException("Refresh token revoked");
+        }
 
-        UUID id = jwtUtils.getIdFromToken(refreshToken);
-        String username = jwtUtils.getUsernameFromToken(refreshToken);
-        User user = new User(id, username);
-        addAuthCookiesToResponse(user, response);
+        // Only a refresh token past the rotation threshold is replaced, a fresher one keeps its cookie
+        Optional<String> nextRefreshToken = refreshTokenService.refresh(claims);
+        User user = claims.toUser();
+        addAccessCookie(user, claims.familyId(), response::addHeader);
+        nextRefreshToken.ifPresent(
+                token -> response.addHeader(HttpHeaders.SET_COOKIE, authCookies.refreshCookie(token)));
+        return user;
     }
 
-    private Optional<String> getCookieValue(HttpServletRequest request, String name) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies == null) {
-            return Optional.empty();
-        }
-
-        return Arrays.stream(cookies)
-                .filter(cookie -> name.equals(cookie.getName()))
-                .map(Cookie::getValue)
-                .findFirst();
+    @Override
+    public HttpHeaders logout(HttpServletRequest request) {
+        // The refresh cookie is scoped to /refresh, so the family is usually known from the access token alone
+        verifiedClaims(AuthCookies.read(request, AuthCookies.ACCESS_TOKEN_NAME))
+                .filter(claims -> TokenClaims.ACCESS.equals(claims.type()))
+                .ifPresent(claims -> {
+                    revocationService.revokeToken(claims);
+                    if (claims.familyId() != null) {
+                        refreshTokenService.revokeFamily(claims.familyId());
+                    }
+                });
+        verifiedClaims(AuthCookies.read(request, AuthCookies.REFRESH_TOKEN_NAME))
+                .filter(TokenClaims::isRefreshToken)
+                .ifPresent(claims -> refreshTokenService.revokeFamily(claims.familyId()));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.SET_COOKIE, authCookies.clearedAccessCookie());
+        headers.add(HttpHeaders.SET_COOKIE, authCookies.clearedRefreshCookie());
+        return headers;
     }
 
-    private void addCookie(HttpServletResponse response, String name, String value, String path, long expirationMillis) {
-        Cookie cookie = new Cookie(name, value);
-        cookie.setHttpOnly(true);
-        cookie.setMaxAge((int) expirationMillis / 1000);
-        if (path != null) {
-            cookie.setPath(path);
+    // Tokens that no longer verify cannot be used anyway and need no revoking
+    private Optional<TokenClaims> verifiedClaims(String token) {
+        if (token == null) {
+            return Optional.empty();
         }
 
-        response.addCookie(cookie);
+        try {
+            return Optional.of(jwtUtils.verifyAndDecode(token));
+        } catch (JWTVerificationException e) {
+            return Optional.empty();
+        }
     }
 }
@@ -0,0 +1,19 @@
+package org.soup.authservice.service;
+
+import org.soup.authservice.model.UserImportProgress;
+import org.soup.authservice.utils.UserImportReader;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public interface UserImportService {
+    /**
+     * Imports the users of the reader, leaving existing usernames untouched, and reports progress after every chunk.
+     * A failure to store a chunk ends the import and is reported in the returned progress.
+     *
+     * @param skip number of records to pass over, taken from the progress of an interrupted import
+     * @throws java.util.concurrent.RejectedExecutionException if another import is running
+     */
+    UserImportProgress importUsers(UserImportReader reader, long skip, Consumer<UserImportProgress> listener)
+            throws IOException;
+}
@@ -0,0 +1,338 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.soup.authservice.model.ImportedUser;
+import org.soup.authservice.model.UserImportProgress;
+import org.soup.authservice.utils.PepperedPasswordEncoder;
+import org.soup.authservice.utils.UserImportReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk user import for migrations, where going through {@code /sign-up} would cost a hash, two queries and an insert
+ * per user.
+ * <p>
+ * Input is processed in chunks. Usernames that already exist are dropped before hashing, which is what makes resuming
+ * or repeating an import cheap. Passwords are hashed in parallel on a fork-join pool of its own, so logins keep the
+ * request hashing pool, and a chunk is hashed while the previous one is loaded. Each chunk is loaded in one
+ * transaction with {@code COPY} into a temporary table and a single {@code INSERT ... ON CONFLICT DO NOTHING}, so
+ * usernames taken in the meantime or repeated in the input are skipped instead of failing the chunk.
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    static final int MAX_USERNAME_LENGTH = 255;
+
+    // The hash formats Spring's BCryptPasswordEncoder can match
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}");
+
+    private static final int SALT_LENGTH = 20;
+
+    private static final String CREATE_STAGING_TABLE = """
+            create temporary table if not exists user_import (
+                username varchar(255) not null,
+                password varchar(255) not null,
+                salt varchar(255) not null
+            ) on commit delete rows""";
+
+    private static final String COPY_INTO_STAGING_TABLE =
+            "copy user_import (username, password, salt) from stdin with (format csv)";
+
+    private static final String INSERT_FROM_STAGING_TABLE = """
+            insert into users (username, password, salt)
+            select username, password, salt from user_import
+            on conflict (username) do nothing
+            returning username""";
+
+    private static final String SELECT_EXISTING = "select username from users where username = any(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transaction;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final UsernameFilterService usernameFilterService;
+
+    private final ForkJoinPool hashingPool;
+
+    private final int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter importedRecords;
+
+    private final Counter existingRecords;
+
+    private final Counter invalidRecords;
+
+    public UserImportServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            PasswordEncoder passwordEncoder,
+            UsernameFilterService usernameFilterService,
+            MeterRegistry meterRegistry,
+            @Value("${security.user-import.chunk-size}") int chunkSize,
+            @Value("${security.user-import.hashing-threads}") int hashingThreads) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("User import chunk size must be positive: " + chunkSize);
+        }
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.usernameFilterService = usernameFilterService;
+        this.chunkSize = chunkSize;
+        this.hashingPool = new ForkJoinPool(
+                hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors());
+
+        this.importedRecords = records(meterRegistry, "imported");
+        this.existingRecords = records(meterRegistry, "existing");
+        this.invalidRecords = records(meterRegistry, "invalid");
+    }
+
+    private static Counter records(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("user.import.records")
+                .description("Records processed by user imports, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    @Override
+    public UserImportProgress importUsers(UserImportReader reader, long skip, Consumer<UserImportProgress> listener)
+            throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new RejectedExecutionException("Another user import is running");
+        }
+
+        try {
+            return run(reader, skip, listener);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private UserImportProgress run(UserImportReader reader, long skip, Consumer<UserImportProgress> listener)
+            throws IOException {
+        Progress progress = new Progress();
+        while (progress.records < skip && reader.next() != null) {
+            progress.records++;
+        }
+
+        CompletableFuture<Chunk> loading = null;
+        try {
+            List<ImportedUser> records = readChunk(reader);
+            while (!records.isEmpty()) {
+                CompletableFuture<Chunk> hashing = hash(prepare(records));
+                if (loading != null) {
+                    load(loading.join(), progress);
+                    listener.accept(progress.toProgress(false, null));
+                }
+                loading = hashing;
+                records = readChunk(reader);
+            }
+            if (loading != null) {
+                load(loading.join(), progress);
+            }
+        } catch (DataAccessException e) {
+            log.warn("User import failed after {} records", progress.records, e);
+            UserImportProgress failed = progress.toProgress(true, "Failed to store users: " + e.getMessage());
+            listener.accept(failed);
+            return failed;
+        }
+
+        log.info("Imported {} users, {} already existed and {} records were invalid",
+                progress.imported, progress.existing, progress.invalid);
+        UserImportProgress done = progress.toProgress(true, null);
+        listener.accept(done);
+        return done;
+    }
+
+    private List<ImportedUser> readChunk(UserImportReader reader) throws IOException {
+        List<ImportedUser> records = new ArrayList<>(chunkSize);
+        ImportedUser record;
+        while (records.size() < chunkSize && (record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Sorts out invalid records and usernames that are taken or repeated, leaving the users that need a hash.
+     */
+    private Chunk prepare(List<ImportedUser> records) {
+        List<ImportedUser> valid = new ArrayList<>(records.size());
+        Set<String> usernames = new HashSet<>();
+        List<String> possiblyExisting = new ArrayList<>();
+        int invalid = 0;
+        for (ImportedUser record : records) {
+            if (!isValid(record)) {
+                invalid++;
+            } else if (usernames.add(record.username())) {
+                valid.add(record);
+                if (usernameFilterService.mightExist(record.username())) {
+                    possiblyExisting.add(record.username());
+                }
+            }
+        }
+
+        // The filter rules out most new usernames, so a fresh import rarely needs this query
+        Set<String> existing = possiblyExisting.isEmpty() ? Set.of() : findExisting(possiblyExisting);
+        List<ImportedUser> toHash = existing.isEmpty() ? valid
+                : valid.stream().filter(record -> !existing.contains(record.username())).toList();
+        return new Chunk(records.size(), invalid, records.size() - invalid - toHash.size(), toHash, null);
+    }
+
+    static boolean isValid(ImportedUser record) {
+        String username = record.username();
+        if (username == null || username.isBlank() || username.length() > MAX_USERNAME_LENGTH) {
+            return false;
+        }
+        // Exactly one of the two, so that a record never silently picks one over the other
+        if (record.passwordHash() != null) {
+            return record.password() == null && BCRYPT_HASH.matcher(record.passwordHash()).matches();
+        }
+        return record.password() != null;
+    }
+
+    private Set<String> findExisting(List<String> usernames) {
+        return new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_EXISTING);
+            Array array = connection.createArrayOf("varchar", usernames.toArray());
+            statement.setArray(1, array);
+            return statement;
+        }, (resultSet, row) -> resultSet.getString(1)));
+    }
+
+    private CompletableFuture<Chunk> hash(Chunk chunk) {
+        if (chunk.users().isEmpty()) {
+            return CompletableFuture.completedFuture(chunk.withRows(List.of()));
+        }
+        // A parallel stream started inside a fork-join pool runs on that pool rather than the common one
+        return CompletableFuture.supplyAsync(
+                () -> chunk.withRows(chunk.users().parallelStream().map(this::toRow).toList()), hashingPool);
+    }
+
+    private UserRow toRow(ImportedUser user) {
+        if (user.passwordHash() != null) {
+            // Computed without salt and pepper, the login passes the empty salt and the encoder skips the pepper
+            return new UserRow(user.username(), PepperedPasswordEncoder.IMPORTED_PREFIX + user.passwordHash(), "");
+        }
+        String salt = RandomStringUtils.randomAlphanumeric(SALT_LENGTH);
+        return new UserRow(user.username(), passwordEncoder.encode(salt + user.password()), salt);
+    }
+
+    private void load(Chunk chunk, Progress progress) {
+        List<String> inserted = chunk.rows().isEmpty() ? List.of() : transaction.execute(status -> {
+            jdbcTemplate.execute(CREATE_STAGING_TABLE);
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> copy(connection, chunk.rows()));
+            return jdbcTemplate.queryForList(INSERT_FROM_STAGING_TABLE, String.class);
+        });
+        for (String username : inserted) {
+            usernameFilterService.add(username);
+        }
+
+        long existing = chunk.existing() + chunk.rows().size() - inserted.size();
+        progress.records += chunk.records();
+        progress.imported += inserted.size();
+        progress.existing += existing;
+        progress.invalid += chunk.invalid();
+        importedRecords.increment(inserted.size());
+        existingRecords.increment(existing);
+        invalidRecords.increment(chunk.invalid());
+    }
+
+    private static long copy(Connection connection, List<UserRow> rows) throws SQLException {
+        byte[] csv = toCsv(rows).getBytes(StandardCharsets.UTF_8);
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_INTO_STAGING_TABLE);
+        try {
+            copyIn.writeToCopy(csv, 0, csv.length);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    static String toCsv(List<UserRow> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        for (UserRow row : rows) {
+            appendCsvField(csv, row.username()).append(',');
+            appendCsvField(csv, row.password()).append(',');
+            appendCsvField(csv, row.salt()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    // Every field is quoted, so an empty salt is an empty string rather than NULL and usernames need no inspection
+    private static StringBuilder appendCsvField(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+
+    record UserRow(String username, String password, String salt) {
+    }
+
+    private record Chunk(int records, int invalid, int existing, List<ImportedUser> users, List<UserRow> rows) {
+        // The plain passwords are not kept around once hashed
+        Chunk withRows(List<UserRow> hashed) {
+            return new Chunk(records, invalid, existing, List.of(), hashed);
+        }
+    }
+
+    private static final class Progress {
+        private long records;
+
+        private long imported;
+
+        private long existing;
+
+        private long invalid;
+
+        UserImportProgress toProgress(boolean done, String error) {
+            return new UserImportProgress(records, imported, existing, invalid, done, error);
+        }
+    }
+}
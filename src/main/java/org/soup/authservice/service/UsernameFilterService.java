@@ -0,0 +1,7 @@
+package org.soup.authservice.service;
+
+public interface UsernameFilterService {
+    boolean mightExist(String username);
+
+    void add(String username);
+}
@@ -0,0 +1,91 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.repository.UserRepository;
+import org.soup.authservice.utils.BloomFilter;
+import org.soup.authservice.utils.InvalidationBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class UsernameFilterServiceImpl implements UsernameFilterService {
+    private final UserRepository userRepository;
+
+    private final BloomFilter filter;
+
+    private final InvalidationBus invalidationBus;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Until the users table has been loaded every username has to be treated as possibly existing
+    private volatile boolean loaded;
+
+    public UsernameFilterServiceImpl(
+            UserRepository userRepository,
+            InvalidationBus invalidationBus,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${security.username-filter.expected-usernames}") long expectedUsernames,
+            @Value("${security.username-filter.false-positive-probability}") double falsePositiveProbability) {
+        this.userRepository = userRepository;
+        this.filter = new BloomFilter(expectedUsernames, falsePositiveProbability);
+        this.invalidationBus = invalidationBus;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("username.filter.false.positive.probability", filter, BloomFilter::expectedFalsePositiveProbability)
+                .description("Estimated false positive probability of the username filter")
+                .register(meterRegistry);
+        Gauge.builder("username.filter.memory", filter, BloomFilter::memoryBytes)
+                .description("Memory used by the username filter bit array")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+
+        // Without this a user who signed up on another node could not log in here until the next restart
+        invalidationBus.subscribe(InvalidationType.USERNAME_ADDED, filter::put);
+        invalidationBus.onResync(this::load);
+    }
+
+    @Override
+    public boolean mightExist(String username) {
+        return !loaded || filter.mightContain(username);
+    }
+
+    @Override
+    public void add(String username) {
+        filter.put(username);
+        invalidationBus.publish(InvalidationType.USERNAME_ADDED, username);
+    }
+
+    // The transaction is started here rather than by @Transactional, as the invalidation bus calls this directly
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        long count = readOnlyTransaction.execute(status -> {
+            long added = 0;
+            try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+                Iterator<String> iterator = usernames.iterator();
+                while (iterator.hasNext()) {
+                    filter.put(iterator.next());
+                    added++;
+                }
+            }
+            return added;
+        });
+        loaded = true;
+        log.info("Loaded {} usernames into the username filter in {} ms",
+                count, (System.nanoTime() - start) / 1_000_000);
+    }
+}
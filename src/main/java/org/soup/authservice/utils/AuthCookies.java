@@ -0,0 +1,102 @@
+package org.soup.authservice.utils;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the token cookies. {@code Set-Cookie} values are built from a prefix and suffix computed once from
+ * the configuration, so issuing a cookie is a single string concatenation instead of a {@link Cookie} or
+ * {@link org.springframework.http.ResponseCookie} and its formatting.
+ */
+@Component
+public class AuthCookies {
+    public static final String ACCESS_TOKEN_NAME = "Soup-Access-Token";
+    public static final String REFRESH_TOKEN_NAME = "Soup-Refresh-Token";
+
+    // Sent only to /refresh, so the long-lived token does not travel with every request
+    private static final String REFRESH_TOKEN_PATH = "/refresh";
+
+    private final String accessCookieSuffix;
+
+    private final String refreshCookieSuffix;
+
+    private final String clearedAccessCookie;
+
+    private final String clearedRefreshCookie;
+
+    public AuthCookies(
+            @Value("${security.access-token.expirationMillis}") long accessTokenExpirationMillis,
+            @Value("${security.refresh-token.expirationMillis}") long refreshTokenExpirationMillis,
+            @Value("${security.cookie.secure}") boolean secure,
+            @Value("${security.cookie.same-site}") String sameSite) {
+        String attributes = (secure ? "; Secure" : "") + "; HttpOnly; SameSite=" + sameSite;
+        this.accessCookieSuffix = "; Path=/; Max-Age=" + toSeconds(accessTokenExpirationMillis) + attributes;
+        this.refreshCookieSuffix = "; Path=" + REFRESH_TOKEN_PATH + "; Max-Age="
+                + toSeconds(refreshTokenExpirationMillis) + attributes;
+        this.clearedAccessCookie = ACCESS_TOKEN_NAME + "=; Path=/; Max-Age=0" + attributes;
+        this.clearedRefreshCookie = REFRESH_TOKEN_NAME + "=; Path=" + REFRESH_TOKEN_PATH + "; Max-Age=0" + attributes;
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value carrying the access token
+     */
+    public String accessCookie(String token) {
+        return cookie(ACCESS_TOKEN_NAME, token, accessCookieSuffix);
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value carrying the refresh token
+     */
+    public String refreshCookie(String token) {
+        return cookie(REFRESH_TOKEN_NAME, token, refreshCookieSuffix);
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value that removes the access token cookie
+     */
+    public String clearedAccessCookie() {
+        return clearedAccessCookie;
+    }
+
+    /**
+     * @return the {@code Set-Cookie} value that removes the refresh token cookie
+     */
+    public String clearedRefreshCookie() {
+        return clearedRefreshCookie;
+    }
+
+    /**
+     * @return the value of the named cookie, or {@code null} if the request does not have it
+     */
+    public static String read(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String cookie(String name, String value, String suffix) {
+        return new StringBuilder(name.length() + 1 + value.length() + suffix.length())
+                .append(name)
+                .append('=')
+                .append(value)
+                .append(suffix)
+                .toString();
+    }
+
+    // Max-Age is in seconds, converted as a long so that lifetimes beyond 24 days do not overflow
+    private static long toSeconds(long millis) {
+        return TimeUnit.MILLISECONDS.toSeconds(millis);
+    }
+}
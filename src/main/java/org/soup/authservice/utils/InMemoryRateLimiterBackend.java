@@ -0,0 +1,102 @@
+package org.soup.authservice.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.soup.authservice.model.RateLimit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets kept in a bounded Caffeine cache. Each bucket is a single AtomicLong holding the theoretical
+ * arrival time of the next permit (GCRA), so acquiring is one CAS. A bucket that was not used for one period of its
+ * limit has refilled completely and expires. When the cache is full, Caffeine evicts the least valuable buckets in its
+ * own maintenance work instead of on the request thread. An evicted bucket is recreated full, so a flood of new keys
+ * can only reset buckets and never locks anyone out.
+ */
+@Component
+public class InMemoryRateLimiterBackend implements RateLimiterBackend {
+    private final Cache<String, Bucket> buckets;
+
+    private final Clock clock;
+
+    @Autowired
+    public InMemoryRateLimiterBackend(
+            @Value("${security.rate-limit.maximum-keys}") int maximumKeys,
+            MeterRegistry meterRegistry) {
+        this(maximumKeys, Clock.systemUTC(), ForkJoinPool.commonPool());
+        Gauge.builder("rate.limiter.keys", buckets, Cache::estimatedSize)
+                .description("Number of rate limit buckets held in memory")
+                .register(meterRegistry);
+    }
+
+    InMemoryRateLimiterBackend(int maximumKeys, Clock clock, Executor maintenanceExecutor) {
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfter(new AfterLastAccess())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .executor(maintenanceExecutor)
+                .build();
+    }
+
+    @Override
+    public long tryAcquire(String key, RateLimit limit) {
+        long interval = limit.emissionIntervalMillis();
+        long burst = interval * limit.capacity();
+        AtomicLong bucket = buckets.get(key, ignored -> new Bucket(burst)).arrival;
+        while (true) {
+            long now = clock.millis();
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + interval;
+            if (next - now > burst) {
+                return next - now - burst;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private static final class Bucket {
+        private final AtomicLong arrival = new AtomicLong();
+
+        // The arrival time is never more than one burst ahead of the last access, so after that the bucket is full
+        private final long idleMillis;
+
+        private Bucket(long idleMillis) {
+            this.idleMillis = idleMillis;
+        }
+    }
+
+    private static final class AfterLastAccess implements Expiry<String, Bucket> {
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(bucket.idleMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(bucket.idleMillis);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(bucket.idleMillis);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.soup.authservice.utils;
+
+import org.soup.authservice.model.InvalidationType;
+
+import java.util.function.Consumer;
+
+/**
+ * Propagates changes of in-memory state to the other nodes. Publishers apply a change locally first, subscribers are
+ * only called for changes made on other nodes.
+ */
+public interface InvalidationBus {
+    /**
+     * Queues a change for the other nodes. Identical changes published close together are sent once.
+     */
+    void publish(InvalidationType type, String key);
+
+    void subscribe(InvalidationType type, Consumer<String> handler);
+
+    /**
+     * Registers a handler that reloads state from the database after changes may have been missed, for example while
+     * the connection to the bus was down.
+     */
+    void onResync(Runnable handler);
+}
@@ -1,38 +1,173 @@
 package org.soup.authservice.utils;
 
 import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.soup.authservice.model.TokenClaims;
 import org.soup.authservice.model.User;
+import org.soup.authservice.utils.JwtKeys.SigningKey;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public final class JwtUtils {
-    @Value("${security.jwt.secret}")
-    private String salt;
+    private static final String ISSUER = "auth-service";
+    private static final String TYPE_CLAIM = "type";
+    private static final String FAMILY_CLAIM = "fam";
+    private static final String ROLE_CLAIM = "role";
+
+    private final JwtKeys keys;
+
+    private final VerifiedTokenCache tokenCache;
+
+    private final Timer signTimer;
+
+    private final Timer validTokenTimer;
+
+    private final Timer invalidTokenTimer;
+
+    // Matched by id, which is generated on sign-up, so nobody can become an admin by choosing a username
+    private final Set<UUID> adminUserIds;
+
+    public JwtUtils(JwtKeys keys, VerifiedTokenCache tokenCache, MeterRegistry meterRegistry) {
+        this(keys, tokenCache, meterRegistry, new String[0]);
+    }
+
+    @Autowired
+    public JwtUtils(
+            JwtKeys keys,
+            VerifiedTokenCache tokenCache,
+            MeterRegistry meterRegistry,
+            @Value("${security.admin.user-ids}") String[] adminUserIds) {
+        this.keys = keys;
+        this.tokenCache = tokenCache;
+        this.adminUserIds = Arrays.stream(adminUserIds)
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(UUID::fromString)
+                .collect(Collectors.toUnmodifiableSet());
+        this.signTimer = Timer.builder("jwt.sign")
+                .description("Time spent signing tokens")
+                .register(meterRegistry);
+        // Only verifications the cache could not answer are timed, hits show up in the cache metrics
+        this.validTokenTimer = Timer.builder("jwt.verify")
+                .description("Time spent verifying tokens")
+                .tag("result", "valid")
+                .register(meterRegistry);
+        this.invalidTokenTimer = Timer.builder("jwt.verify")
+                .description("Time spent verifying tokens")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+    }
 
     public String generateToken(User user, long expirationMillis) {
-        Algorithm algorithm = Algorithm.HMAC256(salt);
+        return sign(createAccessToken(user, expirationMillis));
+    }
+
+    /**
+     * Issues an access token that names its refresh token family, so that logging out with it revokes the family
+     * too.
+     */
+    public String generateToken(User user, UUID familyId, long expirationMillis) {
+        return sign(createAccessToken(user, expirationMillis)
+                .withClaim(FAMILY_CLAIM, familyId.toString()));
+    }
+
+    public String generateRefreshToken(User user, UUID familyId, UUID tokenId, long expirationMillis) {
+        return sign(createToken(user, expirationMillis)
+                .withClaim(TYPE_CLAIM, TokenClaims.REFRESH)
+                .withJWTId(tokenId.toString())
+                .withClaim(FAMILY_CLAIM, familyId.toString()));
+    }
+
+    // The role is decided when the token is issued, so a changed admin list applies from the next login or refresh
+    private JWTCreator.Builder createAccessToken(User user, long expirationMillis) {
+        JWTCreator.Builder builder = createToken(user, expirationMillis)
+                .withClaim(TYPE_CLAIM, TokenClaims.ACCESS)
+                .withJWTId(UUID.randomUUID().toString());
+        if (adminUserIds.contains(user.id())) {
+            builder.withClaim(ROLE_CLAIM, TokenClaims.ADMIN);
+        }
+        return builder;
+    }
+
+    private JWTCreator.Builder createToken(User user, long expirationMillis) {
+        long now = System.currentTimeMillis();
         return JWT.create()
-                .withIssuer("auth-service")
+                .withIssuer(ISSUER)
                 .withSubject(user.username())
                 .withClaim("id", user.id().toString())
-                .withIssuedAt(new Date())
-                .withExpiresAt(new Date(System.currentTimeMillis() + expirationMillis))
-                .sign(algorithm);
+                .withIssuedAt(new Date(now))
+                .withExpiresAt(new Date(now + expirationMillis));
+    }
+
+    private String sign(JWTCreator.Builder builder) {
+        long start = System.nanoTime();
+        SigningKey signingKey = keys.signingKey();
+        if (signingKey.keyId() != null) {
+            builder.withKeyId(signingKey.keyId());
+        }
+        String token = builder.sign(signingKey.algorithm());
+        signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
+    }
+
+    public TokenClaims verifyAndDecode(String token) {
+        return tokenCache.get(token, this::timedDecode);
+    }
+
+    private TokenClaims timedDecode(String token) {
+        long start = System.nanoTime();
+        try {
+            TokenClaims claims = decode(token);
+            validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (JWTVerificationException e) {
+            invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private TokenClaims decode(String token) {
+        DecodedJWT jwt = keys.verify(JWT.decode(token));
+        String id = jwt.getClaim("id").asString();
+        if (id == null) {
+            throw new JWTVerificationException("The Claim 'id' is missing");
+        }
+
+        try {
+            return new TokenClaims(
+                    UUID.fromString(id),
+                    jwt.getSubject(),
+                    jwt.getClaim(TYPE_CLAIM).asString(),
+                    toUuid(jwt.getId()),
+                    toUuid(jwt.getClaim(FAMILY_CLAIM).asString()),
+                    jwt.getIssuedAtAsInstant(),
+                    jwt.getExpiresAtAsInstant(),
+                    jwt.getClaim(ROLE_CLAIM).asString());
+        } catch (IllegalArgumentException e) {
+            throw new JWTVerificationException("The Claims 'id', 'jti' and 'fam' must be valid UUIDs", e);
+        }
+    }
+
+    private static UUID toUuid(String value) {
+        return value == null ? null : UUID.fromString(value);
     }
 
     public boolean verifyToken(String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(salt);
-            JWTVerifier verifier = JWT.require(algorithm).build();
-            verifier.verify(token);
+            verifyAndDecode(token);
             return true;
         } catch (JWTVerificationException e) {
             return false;
@@ -40,17 +175,10 @@ public final class JwtUtils {
     }
 
     public String getUsernameFromToken(String token) {
-        Algorithm algorithm = Algorithm.HMAC256(salt);
-        JWTVerifier verifier = JWT.require(algorithm).build();
-        DecodedJWT jwt = verifier.verify(token);
-        return jwt.getSubject();
+        return verifyAndDecode(token).username();
     }
 
     public UUID getIdFromToken(String token) {
-        Algorithm algorithm = Algorithm.HMAC256(salt);
-        JWTVerifier verifier = JWT.require(algorithm).build();
-        DecodedJWT jwt = verifier.verify(token);
-
-        return UUID.fromString(jwt.getClaim("id").asString());
+        return verifyAndDecode(token).id();
     }
 }
@@ -0,0 +1,113 @@
+package org.soup.authservice.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class PasswordHashCalibrator {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 20;
+
+    // OWASP baseline for Argon2id: 19 MiB of memory, one lane, at least two iterations
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final int ARGON2_PARALLELISM = 1;
+    private static final int ARGON2_MEMORY_KIB = 19 * 1024;
+    private static final int MIN_ARGON2_ITERATIONS = 2;
+    private static final int MAX_ARGON2_ITERATIONS = 64;
+
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private final String algorithm;
+
+    private final long targetMillis;
+
+    private final int configuredCost;
+
+    public PasswordHashCalibrator(
+            @Value("${security.password.algorithm}") String algorithm,
+            @Value("${security.password.target-hash-millis}") long targetMillis,
+            @Value("${security.password.cost}") int configuredCost) {
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm);
+        }
+        this.algorithm = algorithm;
+        this.targetMillis = targetMillis;
+        this.configuredCost = configuredCost;
+    }
+
+    /**
+     * Creates an encoder that prefixes every hash with its algorithm id, so stored hashes carry both algorithm and
+     * cost. Hashes without a prefix are treated as legacy BCrypt and report {@code upgradeEncoding == true}.
+     */
+    public PasswordEncoder createEncoder() {
+        SecureRandom random = new SecureRandom();
+        PasswordEncoder encoder = ARGON2.equals(algorithm)
+                ? argon2(configuredCost > 0 ? configuredCost : calibrateArgon2Iterations())
+                : bcrypt(configuredCost > 0 ? configuredCost : calibrateBCryptStrength(random), random);
+
+        // Matching needs an encoder per id regardless of the one used for encoding; both parse cost from the hash
+        PasswordEncoder bcryptMatcher = BCRYPT.equals(algorithm) ? encoder : bcrypt(MIN_BCRYPT_STRENGTH, random);
+        PasswordEncoder argon2Matcher = ARGON2.equals(algorithm) ? encoder : argon2(MIN_ARGON2_ITERATIONS);
+
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(
+                algorithm, Map.of(BCRYPT, bcryptMatcher, ARGON2, argon2Matcher));
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcryptMatcher);
+        return delegatingEncoder;
+    }
+
+    int calibrateBCryptStrength(SecureRandom random) {
+        // BCrypt cost doubles with every strength step, so one measurement predicts the others
+        measureMillis(bcrypt(4, random));
+        double millisAtMinimum = measureMillis(bcrypt(MIN_BCRYPT_STRENGTH, random));
+
+        int strength = MIN_BCRYPT_STRENGTH;
+        while (strength < MAX_BCRYPT_STRENGTH
+                && millisAtMinimum * (1L << (strength + 1 - MIN_BCRYPT_STRENGTH)) <= targetMillis) {
+            strength++;
+        }
+
+        log.info("Calibrated bcrypt strength {} for a target of {} ms ({} ms at strength {})",
+                strength, targetMillis, Math.round(millisAtMinimum), MIN_BCRYPT_STRENGTH);
+        return strength;
+    }
+
+    int calibrateArgon2Iterations() {
+        measureMillis(argon2(MIN_ARGON2_ITERATIONS));
+        double millisPerIteration = measureMillis(argon2(MIN_ARGON2_ITERATIONS)) / MIN_ARGON2_ITERATIONS;
+
+        int iterations = (int) Math.max(MIN_ARGON2_ITERATIONS,
+                Math.min(MAX_ARGON2_ITERATIONS, Math.floor(targetMillis / millisPerIteration)));
+
+        log.info("Calibrated argon2id iterations {} for a target of {} ms ({} ms per iteration)",
+                iterations, targetMillis, Math.round(millisPerIteration));
+        return iterations;
+    }
+
+    private static double measureMillis(PasswordEncoder encoder) {
+        long start = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    private static PasswordEncoder bcrypt(int strength, SecureRandom random) {
+        return new BCryptPasswordEncoder(strength, random);
+    }
+
+    private static PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(
+                ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, ARGON2_PARALLELISM, ARGON2_MEMORY_KIB, iterations);
+    }
+}
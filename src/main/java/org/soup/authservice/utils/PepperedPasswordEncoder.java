@@ -0,0 +1,42 @@
+package org.soup.authservice.utils;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class PepperedPasswordEncoder implements PasswordEncoder {
+    /**
+     * Marks hashes imported from another system, which were computed without the pepper. They are matched against the
+     * raw password and always reported for upgrade, so they are replaced by a peppered hash on the next login.
+     */
+    public static final String IMPORTED_PREFIX = "{imported}";
+
+    private final String pepper;
+
+    private final PasswordEncoder delegate;
+
+    public PepperedPasswordEncoder(String pepper, PasswordEncoder delegate) {
+        this.pepper = pepper;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(pepper + rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (isImported(encodedPassword)) {
+            return delegate.matches(rawPassword, encodedPassword.substring(IMPORTED_PREFIX.length()));
+        }
+        return delegate.matches(pepper + rawPassword, encodedPassword);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return isImported(encodedPassword) || delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private static boolean isImported(String encodedPassword) {
+        return encodedPassword != null && encodedPassword.startsWith(IMPORTED_PREFIX);
+    }
+}
@@ -0,0 +1,337 @@
+package org.soup.authservice.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.soup.authservice.model.InvalidationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Invalidation bus on Postgres LISTEN/NOTIFY, so it needs nothing but the database the nodes already share.
+ * <p>
+ * Published changes are collected for a short flush interval, duplicates are dropped and the rest is sent with as few
+ * {@code pg_notify} calls as the 8000 byte payload limit allows. Each node listens on its own connection outside the
+ * pool and skips the notifications it sent itself. Notifications are not queued for a disconnected listener, so after
+ * reconnecting the resync handlers reload their state from the database.
+ */
+@Slf4j
+@Component
+public class PostgresInvalidationBus implements InvalidationBus {
+    // Postgres rejects payloads of 8000 bytes or more, the rest is headroom for the node id line
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<InvalidationType, List<Consumer<String>>> handlers = new EnumMap<>(InvalidationType.class);
+
+    private final List<Runnable> resyncHandlers = new CopyOnWriteArrayList<>();
+
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+
+    private final boolean enabled;
+
+    private final String channel;
+
+    private final long flushIntervalMillis;
+
+    private final long reconnectDelayMillis;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter sentEvents;
+
+    private final Counter receivedEvents;
+
+    private volatile boolean running;
+
+    private volatile Connection connection;
+
+    private Thread flusher;
+
+    private Thread listener;
+
+    public PostgresInvalidationBus(
+            @Value("${security.invalidation.enabled}") boolean enabled,
+            @Value("${security.invalidation.channel}") String channel,
+            @Value("${security.invalidation.flush-interval-millis}") long flushIntervalMillis,
+            @Value("${security.invalidation.reconnect-delay-millis}") long reconnectDelayMillis,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+
+        this.enabled = enabled;
+        this.channel = channel;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.jdbcTemplate = jdbcTemplate;
+        for (InvalidationType type : InvalidationType.values()) {
+            handlers.put(type, new CopyOnWriteArrayList<>());
+        }
+
+        this.sentEvents = Counter.builder("invalidation.events")
+                .description("Invalidation events exchanged with other nodes")
+                .tag("direction", "sent")
+                .register(meterRegistry);
+        this.receivedEvents = Counter.builder("invalidation.events")
+                .description("Invalidation events exchanged with other nodes")
+                .tag("direction", "received")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts listening before any subscriber loads its state, so no change made in between is missed.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        try {
+            connect();
+        } catch (SQLException e) {
+            log.warn("Could not listen for invalidations yet, retrying in the background", e);
+        }
+
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+        flusher = new Thread(this::flush, "invalidation-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+        closeConnection();
+    }
+
+    @Override
+    public void publish(InvalidationType type, String key) {
+        if (running) {
+            pending.add(type.code() + URLEncoder.encode(key, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationType type, Consumer<String> handler) {
+        handlers.get(type).add(handler);
+    }
+
+    @Override
+    public void onResync(Runnable handler) {
+        resyncHandlers.add(handler);
+    }
+
+    private void flush() {
+        while (running || !pending.isEmpty()) {
+            Set<String> batch = new LinkedHashSet<>();
+            try {
+                String first = pending.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Gives changes made in the same burst the chance to share a notification
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                // Shutting down, send what is left
+            }
+
+            pending.drainTo(batch);
+            send(batch);
+        }
+    }
+
+    private void send(Collection<String> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        for (String payload : payloads(nodeId, events)) {
+            try {
+                jdbcTemplate.query("select pg_notify(?, ?)", (RowCallbackHandler) resultSet -> {
+                }, channel, payload);
+            } catch (RuntimeException e) {
+                // The changes are already stored, other nodes pick them up on their next resync or restart
+                log.warn("Failed to send invalidation events", e);
+                return;
+            }
+        }
+        sentEvents.increment(events.size());
+    }
+
+    /**
+     * Packs events into as few payloads as fit, each starting with the id of the sending node.
+     */
+    static List<String> payloads(String nodeId, Collection<String> events) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        for (String event : events) {
+            // Encoded events are ASCII, so the length in chars is the length in bytes
+            if (payload.length() > nodeId.length() && payload.length() + 1 + event.length() > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(nodeId);
+            }
+            payload.append('\n').append(event);
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    private void listen() {
+        boolean resync = false;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connect();
+                    resync = true;
+                }
+                if (resync) {
+                    resync();
+                    resync = false;
+                }
+
+                PGNotification[] notifications =
+                        connection.unwrap(PGConnection.class).getNotifications(POLL_TIMEOUT_MILLIS);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the invalidation listener connection, reconnecting in {} ms", reconnectDelayMillis, e);
+                closeConnection();
+                try {
+                    Thread.sleep(reconnectDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void dispatch(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            InvalidationType type = line.isEmpty() ? null : InvalidationType.fromCode(line.charAt(0));
+            if (type == null) {
+                // Sent by a newer node that knows more event types
+                continue;
+            }
+
+            String key = URLDecoder.decode(line.substring(1), StandardCharsets.UTF_8);
+            for (Consumer<String> handler : handlers.get(type)) {
+                try {
+                    handler.accept(key);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to apply {} invalidation for {}", type, key, e);
+                }
+            }
+            receivedEvents.increment();
+        }
+    }
+
+    private void resync() {
+        for (Runnable handler : resyncHandlers) {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                log.warn("Failed to resync after reconnecting to the invalidation bus", e);
+            }
+        }
+    }
+
+    private void connect() throws SQLException {
+        Connection listenerConnection = DriverManager.getConnection(url, username, password);
+        try (Statement statement = listenerConnection.createStatement()) {
+            statement.execute("LISTEN " + channel);
+        } catch (SQLException e) {
+            listenerConnection.close();
+            throw e;
+        }
+        connection = listenerConnection;
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        connection = null;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            current.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close the invalidation listener connection", e);
+        }
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,16 @@
+package org.soup.authservice.utils;
+
+import org.soup.authservice.model.RateLimit;
+
+/**
+ * Storage for rate limit buckets. The in-memory backend limits per node, a shared store can implement this interface
+ * to apply the limits across all nodes.
+ */
+public interface RateLimiterBackend {
+    /**
+     * Takes one permit from the bucket of {@code key}.
+     *
+     * @return {@code 0} if a permit was taken, otherwise the number of milliseconds until one becomes available
+     */
+    long tryAcquire(String key, RateLimit limit);
+}
@@ -0,0 +1,71 @@
+package org.soup.authservice.utils;
+
+import org.soup.authservice.model.TokenClaims;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids grouped into buckets by the expiry of their token, plus per-user cutoffs before which all tokens
+ * of a user are revoked. A lookup computes the bucket from the token's own {@code exp}, so it is one hash lookup per
+ * structure, and a bucket is dropped as a whole once every token in it has expired.
+ */
+public class RevocationList {
+    private final long bucketMillis;
+
+    private final long maxTokenLifetimeMillis;
+
+    private final Map<Long, Set<UUID>> revokedTokens = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Instant> userCutoffs = new ConcurrentHashMap<>();
+
+    public RevocationList(long bucketMillis, long maxTokenLifetimeMillis) {
+        this.bucketMillis = bucketMillis;
+        this.maxTokenLifetimeMillis = maxTokenLifetimeMillis;
+    }
+
+    public void revokeToken(UUID tokenId, Instant expiresAt) {
+        revokedTokens.computeIfAbsent(bucket(expiresAt), ignored -> ConcurrentHashMap.newKeySet()).add(tokenId);
+    }
+
+    public void revokeIssuedBefore(UUID userId, Instant cutoff) {
+        userCutoffs.merge(userId, cutoff, (current, updated) -> current.isAfter(updated) ? current : updated);
+    }
+
+    public boolean isRevoked(TokenClaims claims) {
+        Instant cutoff = userCutoffs.get(claims.id());
+        if (cutoff != null && claims.issuedAt() != null && claims.issuedAt().isBefore(cutoff)) {
+            return true;
+        }
+        if (claims.tokenId() == null || claims.expiresAt() == null) {
+            return false;
+        }
+
+        Set<UUID> bucket = revokedTokens.get(bucket(claims.expiresAt()));
+        return bucket != null && bucket.contains(claims.tokenId());
+    }
+
+    /**
+     * Drops buckets whose tokens have all expired and cutoffs older than the longest token lifetime.
+     */
+    public void purge(Instant now) {
+        long nowMillis = now.toEpochMilli();
+        revokedTokens.keySet().removeIf(bucket -> (bucket + 1) * bucketMillis <= nowMillis);
+        userCutoffs.values().removeIf(cutoff -> cutoff.toEpochMilli() + maxTokenLifetimeMillis <= nowMillis);
+    }
+
+    public int revokedTokenCount() {
+        return revokedTokens.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public int userCutoffCount() {
+        return userCutoffs.size();
+    }
+
+    private long bucket(Instant expiresAt) {
+        return Math.floorDiv(expiresAt.toEpochMilli(), bucketMillis);
+    }
+}
@@ -0,0 +1,104 @@
+package org.soup.authservice.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue on a power of two sized array, after Dmitry Vyukov's bounded queue.
+ * <p>
+ * Every slot carries a sequence number that says whose turn it is: a producer claims the slot at the tail with a
+ * single CAS and publishes its element by advancing the sequence, the consumer hands the slot back to the producers of
+ * the next lap the same way. Offering never locks, allocates or waits, and a full buffer is reported instead of
+ * blocking. Only one thread may drain.
+ */
+public class RingBuffer<E> {
+    private final int mask;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // Written by the consumer only, atomic so that size() can be read from other threads
+    private final AtomicLong head = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 2 and 2^30: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.elements = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} if the buffer is full and the element was not added
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.setPlain(index, element);
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the element offered one lap ago
+                return false;
+            } else {
+                // Another producer claimed this position first
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code maxElements} published elements to the target in the order they were offered. Must only be
+     * called from the consumer thread.
+     *
+     * @return the number of elements moved
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < maxElements) {
+            int index = (int) (position & mask);
+            // A claimed slot is published only once its producer advances the sequence
+            if (sequences.getAcquire(index) != position + 1) {
+                break;
+            }
+
+            target.add(elements.getPlain(index));
+            elements.setPlain(index, null);
+            sequences.setRelease(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head.lazySet(position);
+        return drained;
+    }
+
+    /**
+     * @return the number of elements waiting, which is only a snapshot while producers and the consumer are running
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,148 @@
+package org.soup.authservice.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.soup.authservice.model.ImportedUser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads user import records one line at a time, so a file of any size is streamed rather than loaded.
+ * <p>
+ * NDJSON lines are objects with {@code username} and either {@code password} or {@code password_hash}. CSV input
+ * starts with a header naming the {@code username} column and a {@code password} or {@code password_hash} column, in
+ * any order; fields may be quoted as in RFC 4180 but must not span lines. Blank lines are ignored.
+ */
+public class UserImportReader {
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String USERNAME_COLUMN = "username";
+    private static final String PASSWORD_COLUMN = "password";
+    private static final String PASSWORD_HASH_COLUMN = "password_hash";
+
+    private final BufferedReader reader;
+
+    private final Format format;
+
+    private final ObjectReader jsonReader;
+
+    private int usernameColumn = -1;
+
+    private int passwordColumn = -1;
+
+    private int passwordHashColumn = -1;
+
+    /**
+     * @throws IllegalArgumentException if CSV input has no header with the required columns
+     */
+    public UserImportReader(Reader input, Format format, ObjectMapper objectMapper) throws IOException {
+        this.reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        this.format = format;
+        this.jsonReader = objectMapper.readerFor(ImportedUser.class);
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    private void readHeader() throws IOException {
+        String header = nextLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV import is missing its header");
+        }
+
+        List<String> columns = splitCsv(header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim()) {
+                case USERNAME_COLUMN -> usernameColumn = i;
+                case PASSWORD_COLUMN -> passwordColumn = i;
+                case PASSWORD_HASH_COLUMN -> passwordHashColumn = i;
+                default -> {
+                    // Other columns of the export are ignored
+                }
+            }
+        }
+        if (usernameColumn < 0 || (passwordColumn < 0 && passwordHashColumn < 0)) {
+            throw new IllegalArgumentException(
+                    "CSV header must name a username column and a password or password_hash column");
+        }
+    }
+
+    /**
+     * @return the next record, {@link ImportedUser#UNREADABLE} for a line that could not be parsed, or {@code null}
+     * at the end of the input
+     */
+    public ImportedUser next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        return format == Format.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    private ImportedUser parseJson(String line) {
+        try {
+            ImportedUser user = jsonReader.readValue(line);
+            return user == null ? ImportedUser.UNREADABLE : user;
+        } catch (JsonProcessingException e) {
+            return ImportedUser.UNREADABLE;
+        }
+    }
+
+    private ImportedUser parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return new ImportedUser(field(fields, usernameColumn), field(fields, passwordColumn),
+                field(fields, passwordHashColumn));
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,116 @@
+package org.soup.authservice.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.soup.authservice.model.TokenClaims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class VerifiedTokenCache {
+    private static final String CACHE_NAME = "verified-tokens";
+
+    private final Cache<TokenDigest, TokenClaims> cache;
+
+    private final Clock clock;
+
+    @Autowired
+    public VerifiedTokenCache(
+            @Value("${security.jwt.cache.enabled}") boolean enabled,
+            @Value("${security.jwt.cache.maximum-size}") long maximumSize,
+            MeterRegistry meterRegistry) {
+        this(enabled, maximumSize, meterRegistry, Clock.systemUTC());
+    }
+
+    VerifiedTokenCache(boolean enabled, long maximumSize, MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry(clock))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public TokenClaims get(String token, Function<String, TokenClaims> verifier) {
+        if (cache == null) {
+            return verifier.apply(token);
+        }
+
+        TokenDigest digest = TokenDigest.of(token);
+        TokenClaims claims = cache.getIfPresent(digest);
+        if (claims != null && !isExpired(claims)) {
+            return claims;
+        }
+
+        // Verification failures propagate and are never cached
+        claims = verifier.apply(token);
+        if (!isExpired(claims)) {
+            cache.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public void invalidate(String token) {
+        if (cache != null) {
+            cache.invalidate(TokenDigest.of(token));
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private boolean isExpired(TokenClaims claims) {
+        return claims.expiresAt() == null || claims.expiresAt().toEpochMilli() <= clock.millis();
+    }
+
+    private record TokenDigest(long h0, long h1, long h2, long h3) {
+        static TokenDigest of(String token) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+                ByteBuffer buffer = ByteBuffer.wrap(hash);
+                return new TokenDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record UntilTokenExpiry(Clock clock) implements Expiry<TokenDigest, TokenClaims> {
+        @Override
+        public long expireAfterCreate(TokenDigest key, TokenClaims value, long currentTime) {
+            long remainingMillis = value.expiresAt().toEpochMilli() - clock.millis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, TokenClaims value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, TokenClaims value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
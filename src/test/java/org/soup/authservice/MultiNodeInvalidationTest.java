@@ -0,0 +1,171 @@
+package org.soup.authservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.service.AuthService;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.service.UsernameFilterService;
+import org.soup.authservice.utils.InvalidationBus;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two nodes of the service in one JVM against the local Postgres and checks that a change made on one of them
+ * reaches the in-memory state of the other.
+ */
+class MultiNodeInvalidationTest {
+    private static final Duration CONVERGENCE_TIMEOUT = Duration.ofSeconds(5);
+
+    private static String channel;
+
+    private static ConfigurableApplicationContext first;
+
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNodes() {
+        // A channel of its own keeps other instances on the same database out of the test
+        channel = "soup_invalidation_test_" + UUID.randomUUID().toString().replace("-", "");
+        first = startNode(channel);
+        second = startNode(channel);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (first != null) {
+            first.close();
+        }
+        if (second != null) {
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject tokens on every node after the user was revoked on one of them")
+    void revokeUser_shouldPropagateToOtherNode() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        Instant issuedAt = Instant.now().minusSeconds(1);
+        TokenClaims claims = new TokenClaims(userId, "user", TokenClaims.ACCESS, UUID.randomUUID(), null,
+                issuedAt, issuedAt.plusSeconds(60));
+        TokenRevocationService otherNode = second.getBean(TokenRevocationService.class);
+        assertThat(otherNode.isRevoked(claims)).isFalse();
+
+        // Act
+        first.getBean(TokenRevocationService.class).revokeUser(userId);
+
+        // Assert
+        assertThat(await(() -> otherNode.isRevoked(claims))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a logged out token on every node")
+    void revokeToken_shouldPropagateToOtherNode() {
+        // Arrange
+        Instant now = Instant.now();
+        TokenClaims claims = new TokenClaims(UUID.randomUUID(), "user", TokenClaims.ACCESS, UUID.randomUUID(), null,
+                now, now.plusSeconds(60));
+        TokenRevocationService otherNode = second.getBean(TokenRevocationService.class);
+
+        // Act
+        first.getBean(TokenRevocationService.class).revokeToken(claims);
+
+        // Assert
+        assertThat(await(() -> otherNode.isRevoked(claims))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should let a user who signed up on one node log in on the other")
+    void registerUser_shouldPropagateUsernameToOtherNode() {
+        // Arrange
+        String username = "multi-node-" + UUID.randomUUID();
+
+        // Act
+        first.getBean(AuthService.class).registerUser(username, "password").join();
+
+        // Assert
+        UsernameFilterService otherNode = second.getBean(UsernameFilterService.class);
+        assertThat(await(() -> otherNode.mightExist(username))).isTrue();
+        User user = second.getBean(AuthService.class).authenticateUser(username, "password").join();
+        assertThat(user.username()).isEqualTo(username);
+    }
+
+    @Test
+    @DisplayName("Should reload revocations missed while the listener connection was down")
+    void listener_shouldResyncAfterReconnecting() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        Instant issuedAt = Instant.now().minusSeconds(1);
+        TokenClaims claims = new TokenClaims(userId, "user", TokenClaims.ACCESS, UUID.randomUUID(), null,
+                issuedAt, issuedAt.plusSeconds(60));
+        JdbcTemplate jdbcTemplate = first.getBean(JdbcTemplate.class);
+        // Both listeners go down, so the notification below reaches nobody
+        jdbcTemplate.queryForList("select pg_terminate_backend(pid) from pg_stat_activity where query = ?",
+                "LISTEN " + channel);
+
+        // Act
+        first.getBean(TokenRevocationService.class).revokeUser(userId);
+
+        // Assert
+        TokenRevocationService otherNode = second.getBean(TokenRevocationService.class);
+        assertThat(await(() -> otherNode.isRevoked(claims))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should send a burst of identical changes once")
+    void publish_shouldCoalesceDuplicates() {
+        // Arrange
+        String username = "coalesced-" + UUID.randomUUID();
+        double sentBefore = sentEvents(first);
+
+        // Act
+        InvalidationBus bus = first.getBean(InvalidationBus.class);
+        for (int i = 0; i < 100; i++) {
+            bus.publish(InvalidationType.USERNAME_ADDED, username);
+        }
+
+        // Assert
+        UsernameFilterService otherNode = second.getBean(UsernameFilterService.class);
+        assertThat(await(() -> otherNode.mightExist(username))).isTrue();
+        assertThat(sentEvents(first) - sentBefore).isLessThan(10);
+    }
+
+    private static ConfigurableApplicationContext startNode(String channel) {
+        return new SpringApplicationBuilder(AuthServiceApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--security.invalidation.channel=" + channel,
+                "--security.invalidation.reconnect-delay-millis=100",
+                "--security.password.cost=4",
+                "--spring.jmx.enabled=false");
+    }
+
+    private static double sentEvents(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class).get("invalidation.events").tag("direction", "sent").counter().count();
+    }
+
+    private static boolean await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + CONVERGENCE_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        return condition.getAsBoolean();
+    }
+}
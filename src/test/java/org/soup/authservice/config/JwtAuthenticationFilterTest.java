@@ -0,0 +1,297 @@
+package org.soup.authservice.config;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.config.JwtAuthenticationFilter.RejectionReason;
+import org.soup.authservice.model.User;
+import org.soup.authservice.service.TokenRevocationService;
+import org.soup.authservice.utils.AuthCookies;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+    private static final String SECRET = "over-salted-soup";
+
+    private static final UUID ADMIN_ID = UUID.randomUUID();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final JwtUtils jwtUtils = new JwtUtils(JwtKeys.hmac(SECRET), new VerifiedTokenCache(false, 0, meterRegistry),
+            meterRegistry, new String[]{ADMIN_ID.toString()});
+
+    private final TokenRevocationService revocationService = mock(TokenRevocationService.class);
+
+    private final JwtAuthenticationFilter filter =
+            new JwtAuthenticationFilter(jwtUtils, revocationService, Set.of("/auth"));
+
+    private final User user = new User(UUID.randomUUID(), "user");
+
+    private Authentication authentication;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+        authentication = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should authenticate request from the claims of a valid access token")
+    void doFilter_shouldAuthenticate_whenTokenIsValid() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = requestWithToken(jwtUtils.generateToken(user, 60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(authentication.getPrincipal()).isEqualTo(user);
+        assertThat(authentication.getAuthorities()).isEmpty();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should grant the admin authority to tokens issued to configured admin ids")
+    void doFilter_shouldGrantAdminAuthority_whenUserIdIsAdmin() throws Exception {
+        // Arrange
+        MockHttpServletRequest request =
+                requestWithToken(jwtUtils.generateToken(new User(ADMIN_ID, "root"), 60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly(JwtAuthenticationFilter.ADMIN_AUTHORITY);
+    }
+
+    @Test
+    @DisplayName("Should not grant the admin authority for a username alone")
+    void doFilter_shouldNotGrantAdminAuthority_whenOnlyUsernameMatches() throws Exception {
+        // Arrange
+        MockHttpServletRequest request =
+                requestWithToken(jwtUtils.generateToken(new User(UUID.randomUUID(), "root"), 60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should not grant the admin authority to a token issued before the user became an admin")
+    void doFilter_shouldNotGrantAdminAuthority_whenTokenHasNoRole() throws Exception {
+        // Arrange
+        JwtUtils issuer =
+                new JwtUtils(JwtKeys.hmac(SECRET), new VerifiedTokenCache(false, 0, meterRegistry), meterRegistry);
+        MockHttpServletRequest request = requestWithToken(issuer.generateToken(new User(ADMIN_ID, "root"), 60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should record revocation when a valid access token has been revoked")
+    void doFilter_shouldRecordRevoked_whenTokenIsRevoked() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = requestWithToken(jwtUtils.generateToken(user, 60000));
+        when(revocationService.isRevoked(any())).thenReturn(true);
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.REVOKED);
+    }
+
+    @Test
+    @DisplayName("Should record missing token when no access token cookie is sent")
+    void doFilter_shouldRecordMissing_whenCookieIsAbsent() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/me");
+        request.setServletPath("/me");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.MISSING);
+    }
+
+    @Test
+    @DisplayName("Should reject token that is not a compact JWS without verifying it")
+    void doFilter_shouldRecordMalformed_whenTokenHasWrongShape() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = requestWithToken("not-a-token");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.MALFORMED);
+    }
+
+    @Test
+    @DisplayName("Should record expiry when access token has expired")
+    void doFilter_shouldRecordExpired_whenTokenHasExpired() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = requestWithToken(jwtUtils.generateToken(user, -60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.EXPIRED);
+    }
+
+    @Test
+    @DisplayName("Should record invalid signature when token was signed with another key")
+    void doFilter_shouldRecordInvalidSignature_whenTokenIsForged() throws Exception {
+        // Arrange
+        JwtUtils otherKey =
+                new JwtUtils(JwtKeys.hmac("other-secret"), new VerifiedTokenCache(false, 0, meterRegistry),
+                        meterRegistry);
+        MockHttpServletRequest request = requestWithToken(otherKey.generateToken(user, 60000));
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.INVALID_SIGNATURE);
+    }
+
+    @Test
+    @DisplayName("Should not accept a refresh token as access token")
+    void doFilter_shouldRecordInvalid_whenTokenIsRefreshToken() throws Exception {
+        // Arrange
+        String refreshToken = jwtUtils.generateRefreshToken(user, UUID.randomUUID(), UUID.randomUUID(), 60000);
+        MockHttpServletRequest request = requestWithToken(refreshToken);
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.INVALID);
+    }
+
+    @Test
+    @DisplayName("Should not accept a token without a type as access token")
+    void doFilter_shouldRecordInvalid_whenTokenHasNoType() throws Exception {
+        // Arrange
+        String untypedToken = JWT.create()
+                .withIssuer("auth-service")
+                .withSubject(user.username())
+                .withClaim("id", user.id().toString())
+                .withIssuedAt(new Date())
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(Algorithm.HMAC256(SECRET));
+        MockHttpServletRequest request = requestWithToken(untypedToken);
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(authentication).isNull();
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE))
+                .isEqualTo(RejectionReason.INVALID);
+    }
+
+    @Test
+    @DisplayName("Should skip public endpoints")
+    void doFilter_shouldSkip_whenPathIsPublic() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth");
+        request.setServletPath("/auth");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), capturingChain());
+
+        // Assert
+        assertThat(request.getAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should answer 401 with the recorded reason in WWW-Authenticate")
+    void commence_shouldDescribeRejectionReason() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(JwtAuthenticationFilter.REJECTION_REASON_ATTRIBUTE, RejectionReason.EXPIRED);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        new JwtAuthenticationEntryPoint().commence(request, response,
+                new InsufficientAuthenticationException("Full authentication is required"));
+
+        // Assert
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("WWW-Authenticate")).isEqualTo(
+                "Bearer realm=\"auth-service\", error=\"invalid_token\", error_description=\"Access token has expired\"");
+        assertThat(response.getContentAsString()).isEqualTo("Access token has expired");
+    }
+
+    private MockHttpServletRequest requestWithToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/me");
+        request.setServletPath("/me");
+        request.setCookies(new Cookie(AuthCookies.ACCESS_TOKEN_NAME, token));
+        return request;
+    }
+
+    private MockFilterChain capturingChain() {
+        return new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                authentication = SecurityContextHolder.getContext().getAuthentication();
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package org.soup.authservice.config;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs against the local Postgres, which the test context migrates on startup.
+ */
+@SpringBootTest
+class MigrationChecksumGuardTest {
+    private static final String CHANGE_LOG = "classpath:db/changelog/db.changelog-master.yaml";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should store the checksum of the changelog after migrating")
+    void postProcessAfterInitialization_shouldStoreChecksum() {
+        // Arrange
+        MigrationChecksumGuard guard = new MigrationChecksumGuard(true, false);
+
+        // Act
+        String checksum = guard.checksum(CHANGE_LOG);
+
+        // Assert
+        assertThat(checksum).hasSize(64);
+        assertThat(jdbcTemplate.queryForObject("select checksum from schema_checksum where id = 1", String.class))
+                .isEqualTo(checksum);
+    }
+
+    @Test
+    @DisplayName("Should not run Liquibase when the changelog is unchanged and skipping is enabled")
+    void postProcessBeforeInitialization_shouldSkip_whenChecksumMatches() {
+        // Arrange
+        MigrationChecksumGuard guard = new MigrationChecksumGuard(true, true);
+        SpringLiquibase liquibase = liquibase();
+
+        // Act
+        guard.postProcessBeforeInitialization(liquibase, "liquibase");
+
+        // Assert
+        verify(liquibase).setShouldRun(false);
+    }
+
+    @Test
+    @DisplayName("Should run Liquibase when skipping is disabled")
+    void postProcessBeforeInitialization_shouldRun_whenSkippingIsDisabled() {
+        // Arrange
+        MigrationChecksumGuard guard = new MigrationChecksumGuard(true, false);
+        SpringLiquibase liquibase = liquibase();
+
+        // Act
+        guard.postProcessBeforeInitialization(liquibase, "liquibase");
+
+        // Assert
+        verify(liquibase, never()).setShouldRun(anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should compute the same checksum however the changelog location is written")
+    void checksum_shouldBeStable() {
+        // Arrange
+        MigrationChecksumGuard guard = new MigrationChecksumGuard(true, true);
+
+        // Act & Assert
+        assertThat(guard.checksum(CHANGE_LOG)).isEqualTo(guard.checksum("classpath:/db/changelog/db.changelog-master.yaml"));
+    }
+
+    private SpringLiquibase liquibase() {
+        SpringLiquibase liquibase = spy(new SpringLiquibase());
+        liquibase.setChangeLog(CHANGE_LOG);
+        liquibase.setDataSource(dataSource);
+        return liquibase;
+    }
+}
@@ -0,0 +1,114 @@
+package org.soup.authservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.repository.UserRepository;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.PasswordHashingExecutor;
+import org.soup.authservice.utils.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the local Postgres; the warm-up itself runs while the test context starts.
+ */
+@SpringBootTest(properties = {"security.password.cost=4", "startup.warm-up.token-millis=100"})
+class WarmUpRunnerTest {
+    @Autowired
+    private WarmUpRunner warmUpRunner;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PasswordHashingExecutor hashingExecutor;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Should run every warm-up phase before the service reports ready")
+    void run_shouldWarmUpBeforeReadiness() {
+        // Assert
+        for (String phase : new String[]{"connections", "tokens", "passwords", "total"}) {
+            assertThat(meterRegistry.get("warm.up").tag("phase", phase).timer().count()).isEqualTo(1);
+        }
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    @DisplayName("Should open the minimum number of pooled connections")
+    void warmUpConnections_shouldFillMinimumPool() {
+        // Act
+        int connections = warmUpRunner.warmUpConnections();
+
+        // Assert
+        assertThat(connections).isEqualTo(dataSource.getMinimumIdle());
+        assertThat(dataSource.getHikariPoolMXBean().getTotalConnections()).isGreaterThanOrEqualTo(connections);
+    }
+
+    @Test
+    @DisplayName("Should not leave warm-up tokens in the verified token cache")
+    void warmUpTokens_shouldNotFillTokenCache() {
+        // Arrange
+        double cachedBefore = cachedTokens();
+
+        // Act
+        int cycles = warmUpRunner.warmUpTokens();
+
+        // Assert
+        assertThat(cycles).isPositive();
+        assertThat(cachedTokens()).isLessThanOrEqualTo(cachedBefore);
+    }
+
+    @Test
+    @DisplayName("Should do nothing when the warm-up is disabled")
+    void run_shouldSkip_whenDisabled() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WarmUpRunner disabled = new WarmUpRunner(false, 100, 1, 5, jwtUtils, tokenCache, passwordEncoder,
+                hashingExecutor, userRepository, refreshTokenFamilyRepository, transactionManager, dataSource, registry);
+
+        // Act
+        disabled.run(new DefaultApplicationArguments());
+
+        // Assert
+        assertThat(registry.getMeters()).isEmpty();
+    }
+
+    private double cachedTokens() {
+        return meterRegistry.get("cache.size").tag("cache", "verified-tokens").gauge().value();
+    }
+}
@@ -0,0 +1,66 @@
+package org.soup.authservice.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.exception.UserAlreadyExistsException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExceptionControllerTest {
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExceptionController exceptionController;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        exceptionController = new ExceptionController(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should count duplicate users apart from other invalid requests")
+    void userAlreadyExistsException_shouldCountDuplicateUser() {
+        // Act
+        ResponseEntity<String> response =
+                exceptionController.userAlreadyExistsException(new UserAlreadyExistsException("User already exists"));
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(rejections("duplicate_user")).isEqualTo(1.0);
+        assertThat(rejections("invalid_request")).isZero();
+    }
+
+    @Test
+    @DisplayName("Should count bad credentials")
+    void badCredentialsException_shouldCountBadCredentials() {
+        // Act
+        ResponseEntity<String> response =
+                exceptionController.badCredentialsException(new BadCredentialsException("Invalid username or password"));
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(rejections("bad_credentials")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should count invalid refresh cookies")
+    void invalidCookieException_shouldCountInvalidCookie() {
+        // Act
+        ResponseEntity<String> response =
+                exceptionController.invalidCookieException(new InvalidCookieException("Refresh token revoked"));
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(rejections("invalid_cookie")).isEqualTo(1.0);
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("request.rejections").tag("reason", reason).counter().count();
+    }
+}
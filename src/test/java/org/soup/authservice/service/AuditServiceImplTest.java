@@ -0,0 +1,214 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.soup.authservice.model.AuditEvent;
+import org.soup.authservice.model.AuditEventType;
+import org.soup.authservice.service.AuditServiceImpl.OverflowPolicy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditServiceImplTest {
+    private static final Instant NOW = Instant.parse("2024-03-15T12:00:00Z");
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PreparedStatement statement;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should write buffered events with one multi-row insert")
+    void flush_shouldInsertBatchInOneStatement() throws Exception {
+        // Arrange
+        AuditServiceImpl auditService = auditService(16, OverflowPolicy.DROP, 10);
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+        auditService.record(AuditEventType.SIGN_UP, false, null, "other", "10.0.0.2");
+
+        // Act
+        int written = auditService.flush(new ArrayList<>());
+
+        // Assert
+        assertThat(written).isEqualTo(2);
+        ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate).update(eq(AuditServiceImpl.insertStatement(2)), setter.capture());
+        setter.getValue().setValues(statement);
+        verify(statement).setTimestamp(1, Timestamp.from(NOW));
+        verify(statement).setString(2, "LOGIN");
+        verify(statement).setBoolean(3, true);
+        verify(statement).setObject(4, USER_ID);
+        verify(statement).setString(5, "user");
+        verify(statement).setString(6, "10.0.0.1");
+        verify(statement).setString(8, "SIGN_UP");
+        verify(statement).setBoolean(9, false);
+        verify(statement).setNull(10, Types.OTHER);
+        assertThat(events("written")).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should write no more than one batch per flush")
+    void flush_shouldLimitBatchSize() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(16, OverflowPolicy.DROP, 2);
+        for (int i = 0; i < 3; i++) {
+            auditService.record(AuditEventType.REFRESH, true, USER_ID, "user", "10.0.0.1");
+        }
+
+        // Act
+        int first = auditService.flush(new ArrayList<>());
+        int second = auditService.flush(new ArrayList<>());
+
+        // Assert
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isEqualTo(1);
+        verify(jdbcTemplate).update(eq(AuditServiceImpl.insertStatement(2)), any(PreparedStatementSetter.class));
+        verify(jdbcTemplate).update(eq(AuditServiceImpl.insertStatement(1)), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("Should drop events and count them when the buffer is full")
+    void record_shouldDropEvents_whenBufferIsFull() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(2, OverflowPolicy.DROP, 10);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            auditService.record(AuditEventType.LOGIN, false, null, "user", "10.0.0.1");
+        }
+
+        // Assert
+        assertThat(events("dropped")).isEqualTo(3.0);
+        assertThat(meterRegistry.get("audit.buffer.pending").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should wait for room no longer than the block timeout")
+    void record_shouldGiveUpAfterBlockTimeout_whenBufferStaysFull() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(2, OverflowPolicy.BLOCK, 10);
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+        long start = System.nanoTime();
+
+        // Act
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+
+        // Assert
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(events("dropped")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should count a batch as failed and move on when the insert fails")
+    void flush_shouldCountFailedEvents_whenInsertFails() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(16, OverflowPolicy.DROP, 10);
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        // Act
+        int taken = auditService.flush(new ArrayList<>());
+
+        // Assert
+        assertThat(taken).isEqualTo(1);
+        assertThat(events("failed")).isEqualTo(1.0);
+        assertThat(auditService.flush(new ArrayList<>())).isZero();
+    }
+
+    @Test
+    @DisplayName("Should cut usernames to the column size")
+    void record_shouldTruncateLongUsernames() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(16, OverflowPolicy.DROP, 10);
+        List<AuditEvent> batch = new ArrayList<>();
+
+        // Act
+        auditService.record(AuditEventType.SIGN_UP, false, null, "x".repeat(1000), "10.0.0.1");
+        auditService.flush(batch);
+
+        // Assert
+        assertThat(batch).singleElement()
+                .satisfies(event -> assertThat(event.username()).hasSize(AuditServiceImpl.MAX_USERNAME_LENGTH));
+    }
+
+    @Test
+    @DisplayName("Should record nothing when the audit log is disabled")
+    void record_shouldDoNothing_whenDisabled() {
+        // Arrange
+        AuditServiceImpl auditService = new AuditServiceImpl(false, 16, OverflowPolicy.DROP, 10, 10, 200, 12,
+                jdbcTemplate, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // Act
+        auditService.record(AuditEventType.LOGIN, true, USER_ID, "user", "10.0.0.1");
+        auditService.maintainPartitions();
+
+        // Assert
+        assertThat(auditService.flush(new ArrayList<>())).isZero();
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("Should create partitions ahead and drop those past the retention period")
+    void maintainPartitions_shouldCreateAndDropMonthlyPartitions() {
+        // Arrange
+        AuditServiceImpl auditService = auditService(16, OverflowPolicy.DROP, 10);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_events")))
+                .thenReturn(List.of("audit_events_2023_02", "audit_events_2023_03", "audit_events_2024_03"));
+
+        // Act
+        auditService.maintainPartitions();
+
+        // Assert
+        verify(jdbcTemplate).execute("create table if not exists audit_events_2024_03 partition of audit_events"
+                + " for values from ('2024-03-01 00:00:00+00') to ('2024-04-01 00:00:00+00')");
+        verify(jdbcTemplate).execute("create table if not exists audit_events_2024_04 partition of audit_events"
+                + " for values from ('2024-04-01 00:00:00+00') to ('2024-05-01 00:00:00+00')");
+        verify(jdbcTemplate).execute("drop table if exists audit_events_2023_02");
+        verify(jdbcTemplate, never()).execute("drop table if exists audit_events_2023_03");
+        verify(jdbcTemplate, never()).execute("drop table if exists audit_events_2024_03");
+    }
+
+    private AuditServiceImpl auditService(int bufferSize, OverflowPolicy policy, int batchSize) {
+        return new AuditServiceImpl(true, bufferSize, policy, 20, batchSize, 200, 12, jdbcTemplate, meterRegistry,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private double events(String result) {
+        return meterRegistry.get("audit.events").tag("result", result).counter().count();
+    }
+}
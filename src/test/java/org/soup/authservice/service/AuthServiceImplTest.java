@@ -1,21 +1,33 @@
 package org.soup.authservice.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.soup.authservice.model.User;
 import org.soup.authservice.repository.UserRepository;
-import org.soup.authservice.repository.entity.UserEntity;
+import org.soup.authservice.repository.projection.UserCredentials;
+import org.soup.authservice.utils.PasswordHashingExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class AuthServiceImplTest {
@@ -27,12 +39,30 @@ class AuthServiceImplTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
+    @Mock
+    private UsernameFilterService usernameFilterService;
+
+    private final PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor(1, 16, new SimpleMeterRegistry());
+
+    private final ExecutorService requestExecutor = Executors.newSingleThreadExecutor(
+            new CustomizableThreadFactory("request-"));
+
     private AuthServiceImpl authService;
 
     @BeforeEach
     void setUp() {
         openMocks = MockitoAnnotations.openMocks(this);
+        authService = new AuthServiceImpl(
+                userRepository, passwordEncoder, hashingExecutor, usernameFilterService, requestExecutor);
+        // The constructor hashes the dummy password used for unknown users
+        clearInvocations(passwordEncoder);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        hashingExecutor.shutdown();
+        requestExecutor.shutdown();
+        openMocks.close();
     }
 
     @Test
@@ -41,14 +71,53 @@ class AuthServiceImplTest {
         // Arrange
         String username = "user";
         String password = "password";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
-        when(passwordEncoder.encode(password)).thenReturn("encodedPassword");
+        when(usernameFilterService.mightExist(username)).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
 
         // Act
-        authService.registerUser(username, password);
+        authService.registerUser(username, password).join();
 
         // Assert
-        verify(userRepository, times(1)).save(any(UserEntity.class));
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, times(1)).insertUser(eq(username), eq("encodedPassword"), anyString());
+        verify(usernameFilterService, times(1)).add(username);
+    }
+
+    @Test
+    @DisplayName("Should insert the new user on the request executor instead of the hashing pool")
+    void registerUser_shouldInsertOnRequestExecutor() {
+        // Arrange
+        String username = "user";
+        AtomicReference<String> insertThread = new AtomicReference<>();
+        when(usernameFilterService.mightExist(username)).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.insertUser(eq(username), eq("encodedPassword"), anyString())).thenAnswer(invocation -> {
+            insertThread.set(Thread.currentThread().getName());
+            return 1;
+        });
+
+        // Act
+        authService.registerUser(username, "password").join();
+
+        // Assert
+        assertThat(insertThread.get()).startsWith("request-");
+    }
+
+    @Test
+    @DisplayName("Should register a new user when username filter reports a false positive")
+    void registerUser_shouldRegisterNewUser_whenFilterReportsFalsePositive() {
+        // Arrange
+        String username = "user";
+        String password = "password";
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.existsByUsername(username)).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+
+        // Act
+        authService.registerUser(username, password).join();
+
+        // Assert
+        verify(userRepository, times(1)).insertUser(eq(username), eq("encodedPassword"), anyString());
     }
 
     @Test
@@ -57,14 +126,39 @@ class AuthServiceImplTest {
         // Arrange
         String username = "existingUser";
         String password = "password";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(new UserEntity()));
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.existsByUsername(username)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> authService.registerUser(username, password).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User already exists");
+
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(userRepository, never()).insertUser(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should throw exception when a concurrent sign-up inserted the username first")
+    void registerUser_shouldThrowException_whenUniqueConstraintIsViolated() {
+        // Arrange
+        String username = "user";
+        String password = "password";
+        when(usernameFilterService.mightExist(username)).thenReturn(false);
+        when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+        when(userRepository.insertUser(eq(username), eq("encodedPassword"), anyString()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
 
         // Act & Assert
-        assertThatThrownBy(() -> authService.registerUser(username, password))
+        assertThatThrownBy(() -> authService.registerUser(username, password).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("User already exists");
 
-        verify(userRepository, never()).save(any(UserEntity.class));
+        verify(usernameFilterService, never()).add(username);
     }
 
     @Test
@@ -73,19 +167,95 @@ class AuthServiceImplTest {
         // Arrange
         String username = "user";
         String password = "password";
-        UserEntity userEntity = new UserEntity();
-        userEntity.setUsername(username);
-        userEntity.setPassword("encodedPassword");
+        UserCredentials credentials = new UserCredentials(
+                UUID.randomUUID(), username, "encodedPassword", "salt");
+
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.of(credentials));
+        when(passwordEncoder.matches("salt" + password, credentials.password())).thenReturn(true);
+
+        // Act
+        User user = authService.authenticateUser(username, password).join();
+
+        // Assert
+        assertThat(user.username()).isEqualTo(username);
+        verify(userRepository, times(1)).findCredentialsByUsername(username);
+        verify(userRepository, never()).updatePassword(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should rehash password on login when stored hash is outdated")
+    void authenticateUser_shouldRehashPassword_whenEncodingIsOutdated() {
+        // Arrange
+        String username = "user";
+        String password = "password";
+        UserCredentials credentials = new UserCredentials(
+                UUID.randomUUID(), username, "oldEncodedPassword", "salt");
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(userEntity));
-        when(passwordEncoder.matches(password, userEntity.getPassword())).thenReturn(true);
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.of(credentials));
+        when(passwordEncoder.matches("salt" + password, "oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("salt" + password)).thenReturn("newEncodedPassword");
 
         // Act
-        User user = authService.authenticateUser(username, password);
+        User user = authService.authenticateUser(username, password).join();
+
+        // Assert
+        assertThat(user.id()).isEqualTo(credentials.id());
+        verify(userRepository, timeout(1000).times(1)).updatePassword(credentials.id(), "newEncodedPassword");
+    }
+
+    @Test
+    @DisplayName("Should return the user without waiting for the password rehash")
+    void authenticateUser_shouldNotWaitForRehash() {
+        // Arrange
+        String username = "user";
+        String password = "password";
+        UserCredentials credentials = new UserCredentials(
+                UUID.randomUUID(), username, "oldEncodedPassword", "salt");
+        CountDownLatch rehashReleased = new CountDownLatch(1);
+
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.of(credentials));
+        when(passwordEncoder.matches("salt" + password, "oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("salt" + password)).thenAnswer(invocation -> {
+            rehashReleased.await();
+            return "newEncodedPassword";
+        });
+
+        // Act
+        User user = authService.authenticateUser(username, password).orTimeout(5, TimeUnit.SECONDS).join();
+
+        // Assert
+        assertThat(user.id()).isEqualTo(credentials.id());
+        verify(userRepository, never()).updatePassword(any(), anyString());
+        rehashReleased.countDown();
+        verify(userRepository, timeout(1000).times(1)).updatePassword(credentials.id(), "newEncodedPassword");
+    }
+
+    @Test
+    @DisplayName("Should authenticate user even if the password rehash cannot be stored")
+    void authenticateUser_shouldReturnUser_whenRehashFails() {
+        // Arrange
+        String username = "user";
+        String password = "password";
+        UserCredentials credentials = new UserCredentials(
+                UUID.randomUUID(), username, "oldEncodedPassword", "salt");
+
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.of(credentials));
+        when(passwordEncoder.matches("salt" + password, "oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("oldEncodedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("salt" + password)).thenReturn("newEncodedPassword");
+        when(userRepository.updatePassword(any(), anyString())).thenThrow(new QueryTimeoutException("timeout"));
+
+        // Act
+        User user = authService.authenticateUser(username, password).join();
 
         // Assert
         assertThat(user.username()).isEqualTo(username);
-        verify(userRepository, times(1)).findByUsername(username);
     }
 
     @Test
@@ -94,12 +264,36 @@ class AuthServiceImplTest {
         // Arrange
         String username = "nonExistentUser";
         String password = "password";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> authService.authenticateUser(username, password).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Invalid username or password");
+
+        verify(passwordEncoder, times(1)).matches(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown user without database query when filter rules the username out")
+    void authenticateUser_shouldSkipDatabase_whenUsernameFilterMisses() {
+        // Arrange
+        String username = "nonExistentUser";
+        String password = "password";
+        when(usernameFilterService.mightExist(username)).thenReturn(false);
 
         // Act & Assert
-        assertThatThrownBy(() -> authService.authenticateUser(username, password))
+        assertThatThrownBy(() -> authService.authenticateUser(username, password).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
                 .isInstanceOf(BadCredentialsException.class)
                 .hasMessage("Invalid username or password");
+
+        verify(userRepository, never()).findCredentialsByUsername(anyString());
+        verify(passwordEncoder, times(1)).matches(anyString(), any());
     }
 
     @Test
@@ -108,15 +302,17 @@ class AuthServiceImplTest {
         // Arrange
         String username = "user";
         String password = "wrongPassword";
-        UserEntity userEntity = new UserEntity();
-        userEntity.setUsername(username);
-        userEntity.setPassword("encodedPassword");
+        UserCredentials credentials = new UserCredentials(
+                UUID.randomUUID(), username, "encodedPassword", "salt");
 
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(userEntity));
-        when(passwordEncoder.matches(password, userEntity.getPassword())).thenReturn(false);
+        when(usernameFilterService.mightExist(username)).thenReturn(true);
+        when(userRepository.findCredentialsByUsername(username)).thenReturn(Optional.of(credentials));
+        when(passwordEncoder.matches("salt" + password, credentials.password())).thenReturn(false);
 
         // Act & Assert
-        assertThatThrownBy(() -> authService.authenticateUser(username, password))
+        assertThatThrownBy(() -> authService.authenticateUser(username, password).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
                 .isInstanceOf(BadCredentialsException.class)
                 .hasMessage("Invalid username or password");
     }
@@ -0,0 +1,147 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.exception.InvalidClientException;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.TokenIntrospection;
+import org.soup.authservice.model.User;
+import org.soup.authservice.utils.JwtKeys;
+import org.soup.authservice.utils.JwtUtils;
+import org.soup.authservice.utils.VerifiedTokenCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IntrospectionServiceImplTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final JwtUtils jwtUtils =
+            new JwtUtils(JwtKeys.hmac("over-salted-soup"), new VerifiedTokenCache(false, 0, meterRegistry),
+                    meterRegistry);
+
+    private final TokenRevocationService revocationService = mock(TokenRevocationService.class);
+
+    private final IntrospectionServiceImpl introspectionService =
+            new IntrospectionServiceImpl(jwtUtils, revocationService, "gateway", "gateway-secret", 3);
+
+    private final User user = new User(UUID.randomUUID(), "user");
+
+    @Test
+    @DisplayName("Should describe a valid access token with its claims")
+    void introspect_shouldReturnClaims_whenTokenIsActive() {
+        // Arrange
+        String token = jwtUtils.generateToken(user, 60000);
+        TokenClaims claims = jwtUtils.verifyAndDecode(token);
+
+        // Act
+        TokenIntrospection introspection = introspectionService.introspect(token);
+
+        // Assert
+        assertThat(introspection.active()).isTrue();
+        assertThat(introspection.tokenType()).isEqualTo(TokenIntrospection.ACCESS_TOKEN_TYPE);
+        assertThat(introspection.sub()).isEqualTo("user");
+        assertThat(introspection.userId()).isEqualTo(user.id());
+        assertThat(introspection.jti()).isEqualTo(claims.tokenId().toString());
+        assertThat(introspection.exp()).isEqualTo(claims.expiresAt().getEpochSecond());
+    }
+
+    @Test
+    @DisplayName("Should report expired, forged, garbage and empty tokens as inactive")
+    void introspect_shouldReturnInactive_whenTokenDoesNotVerify() {
+        // Arrange
+        JwtUtils otherKey =
+                new JwtUtils(JwtKeys.hmac("other-secret"), new VerifiedTokenCache(false, 0, meterRegistry),
+                        meterRegistry);
+
+        // Act & Assert
+        assertThat(introspectionService.introspect(jwtUtils.generateToken(user, -60000)))
+                .isEqualTo(TokenIntrospection.INACTIVE);
+        assertThat(introspectionService.introspect(otherKey.generateToken(user, 60000)))
+                .isEqualTo(TokenIntrospection.INACTIVE);
+        assertThat(introspectionService.introspect("not-a-token")).isEqualTo(TokenIntrospection.INACTIVE);
+        assertThat(introspectionService.introspect("")).isEqualTo(TokenIntrospection.INACTIVE);
+    }
+
+    @Test
+    @DisplayName("Should report revoked access tokens and refresh tokens as inactive")
+    void introspect_shouldReturnInactive_whenTokenIsRevokedOrRefreshToken() {
+        // Arrange
+        String refreshToken = jwtUtils.generateRefreshToken(user, UUID.randomUUID(), UUID.randomUUID(), 60000);
+        String accessToken = jwtUtils.generateToken(user, 60000);
+        when(revocationService.isRevoked(any())).thenReturn(true);
+
+        // Act & Assert
+        assertThat(introspectionService.introspect(refreshToken)).isEqualTo(TokenIntrospection.INACTIVE);
+        assertThat(introspectionService.introspect(accessToken)).isEqualTo(TokenIntrospection.INACTIVE);
+    }
+
+    @Test
+    @DisplayName("Should introspect a batch in order")
+    void introspectAll_shouldKeepRequestOrder() {
+        // Arrange
+        String token = jwtUtils.generateToken(user, 60000);
+
+        // Act
+        List<TokenIntrospection> introspections =
+                introspectionService.introspectAll(List.of(token, "not-a-token", token)).toList();
+
+        // Assert
+        assertThat(introspections).extracting(TokenIntrospection::active).containsExactly(true, false, true);
+    }
+
+    @Test
+    @DisplayName("Should refuse empty batches and batches above the limit")
+    void introspectAll_shouldRejectInvalidBatchSize() {
+        // Act & Assert
+        assertThatThrownBy(() -> introspectionService.introspectAll(Collections.emptyList()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> introspectionService.introspectAll(List.of("a", "b", "c", "d")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("At most 3 tokens can be introspected at once");
+    }
+
+    @Test
+    @DisplayName("Should accept the configured client credentials only")
+    void authenticateClient_shouldCheckBasicCredentials() {
+        // Act & Assert
+        assertThatCode(() -> introspectionService.authenticateClient(basic("gateway", "gateway-secret")))
+                .doesNotThrowAnyException();
+        assertThatThrownBy(() -> introspectionService.authenticateClient(basic("gateway", "wrong")))
+                .isInstanceOf(InvalidClientException.class);
+        assertThatThrownBy(() -> introspectionService.authenticateClient(basic("other", "gateway-secret")))
+                .isInstanceOf(InvalidClientException.class);
+        assertThatThrownBy(() -> introspectionService.authenticateClient("Basic %%%"))
+                .isInstanceOf(InvalidClientException.class);
+        assertThatThrownBy(() -> introspectionService.authenticateClient(null))
+                .isInstanceOf(InvalidClientException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject every client when no secret is configured")
+    void authenticateClient_shouldRejectAll_whenSecretIsNotConfigured() {
+        // Arrange
+        IntrospectionServiceImpl unconfigured =
+                new IntrospectionServiceImpl(jwtUtils, revocationService, "gateway", "", 3);
+
+        // Act & Assert
+        assertThatThrownBy(() -> unconfigured.authenticateClient(basic("gateway", "")))
+                .isInstanceOf(InvalidClientException.class);
+    }
+
+    private static String basic(String clientId, String clientSecret) {
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+    }
+}
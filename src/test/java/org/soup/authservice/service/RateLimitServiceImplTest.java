@@ -0,0 +1,97 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.exception.RateLimitExceededException;
+import org.soup.authservice.model.RateLimit;
+import org.soup.authservice.utils.RateLimiterBackend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitServiceImplTest {
+    private CountingBackend backend;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        backend = new CountingBackend();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should reject login once the username allowance is used up")
+    void checkAuth_shouldThrow_whenUsernameLimitIsExceeded() {
+        // Arrange
+        RateLimitServiceImpl rateLimitService = new RateLimitServiceImpl(backend, meterRegistry, true, 2, 60000, 10, 60000);
+        rateLimitService.checkAuth("user", "10.0.0.1");
+        rateLimitService.checkAuth("user", "10.0.0.2");
+
+        // Act & Assert
+        assertThatThrownBy(() -> rateLimitService.checkAuth("user", "10.0.0.3"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .hasMessage("Too many requests, try again later");
+        assertThat(meterRegistry.get("rate.limiter.rejections").tag("key", "username").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should reject a client IP before touching the username bucket")
+    void checkAuth_shouldNotConsumeUsername_whenIpLimitIsExceeded() {
+        // Arrange
+        RateLimitServiceImpl rateLimitService = new RateLimitServiceImpl(backend, meterRegistry, true, 10, 60000, 1, 60000);
+        rateLimitService.checkAuth("first", "10.0.0.1");
+
+        // Act & Assert
+        assertThatThrownBy(() -> rateLimitService.checkAuth("second", "10.0.0.1"))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(backend.acquired).doesNotContainKey("auth:user:second");
+    }
+
+    @Test
+    @DisplayName("Should keep separate allowances for /auth and /sign-up")
+    void checkSignUp_shouldUseSeparateBuckets() {
+        // Arrange
+        RateLimitServiceImpl rateLimitService = new RateLimitServiceImpl(backend, meterRegistry, true, 1, 60000, 10, 60000);
+        rateLimitService.checkAuth("user", "10.0.0.1");
+
+        // Act & Assert
+        assertThatCode(() -> rateLimitService.checkSignUp("user", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should not consult the backend when rate limiting is disabled")
+    void checkAuth_shouldSkipBackend_whenDisabled() {
+        // Arrange
+        RateLimitServiceImpl rateLimitService = new RateLimitServiceImpl(backend, meterRegistry, false, 1, 60000, 1, 60000);
+
+        // Act
+        rateLimitService.checkAuth("user", "10.0.0.1");
+        rateLimitService.checkAuth("user", "10.0.0.1");
+
+        // Assert
+        assertThat(backend.acquired).isEmpty();
+    }
+
+    // Fixed-window stand-in that never refills, enough to check which keys the service charges
+    private static final class CountingBackend implements RateLimiterBackend {
+        private final Map<String, Integer> acquired = new HashMap<>();
+
+        @Override
+        public long tryAcquire(String key, RateLimit limit) {
+            int count = acquired.getOrDefault(key, 0);
+            if (count >= limit.capacity()) {
+                return limit.emissionIntervalMillis();
+            }
+            acquired.put(key, count + 1);
+            return 0;
+        }
+    }
+}
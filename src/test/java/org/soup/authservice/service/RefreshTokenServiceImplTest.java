@@ -0,0 +1,283 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.model.User;
+import org.soup.authservice.repository.RefreshTokenFamilyRepository;
+import org.soup.authservice.utils.InvalidationBus;
+import org.soup.authservice.utils.JwtUtils;
+import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceImplTest {
+    private static final long EXPIRATION_MILLIS = 60000;
+    private static final double ROTATION_THRESHOLD = 0.5;
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    AutoCloseable openMocks;
+
+    @Mock
+    private RefreshTokenFamilyRepository familyRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    private final User user = new User(UUID.randomUUID(), "user");
+
+    @BeforeEach
+    void setUp() {
+        openMocks = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = refreshTokenService(ROTATION_THRESHOLD);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        openMocks.close();
+    }
+
+    @Test
+    @DisplayName("Should store a new family and issue its first token on login")
+    void createFamily_shouldInsertFamilyAndIssueToken() {
+        // Arrange
+        when(jwtUtils.generateRefreshToken(eq(user), any(), any(), eq(EXPIRATION_MILLIS))).thenReturn("refresh");
+
+        // Act
+        UUID familyId = UUID.randomUUID();
+        String token = refreshTokenService.createFamily(user, familyId);
+
+        // Assert
+        assertThat(token).isEqualTo("refresh");
+        verify(familyRepository, times(1))
+                .insertFamily(eq(familyId), eq(user.id()), any(), eq(NOW.plusMillis(EXPIRATION_MILLIS)));
+    }
+
+    @Test
+    @DisplayName("Should rotate the current token with a single conditional update")
+    void rotate_shouldIssueSuccessor_whenTokenIsCurrent() {
+        // Arrange
+        TokenClaims claims = refreshClaims();
+        when(familyRepository.rotate(eq(claims.familyId()), eq(claims.tokenId()), any(), any(), eq(NOW)))
+                .thenReturn(1);
+        when(jwtUtils.generateRefreshToken(eq(user), eq(claims.familyId()), any(), eq(EXPIRATION_MILLIS)))
+                .thenReturn("next");
+
+        // Act
+        String token = refreshTokenService.rotate(claims);
+
+        // Assert
+        assertThat(token).isEqualTo("next");
+        verify(familyRepository, never()).revoke(any());
+    }
+
+    @Test
+    @DisplayName("Should revoke the family when a consumed token is presented again")
+    void rotate_shouldRevokeFamily_whenTokenIsReused() {
+        // Arrange
+        TokenClaims claims = refreshClaims();
+        when(familyRepository.rotate(any(), any(), any(), any(), any())).thenReturn(0);
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.rotate(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verify(familyRepository, times(1)).revoke(claims.familyId());
+        verify(invalidationBus, times(1)).publish(InvalidationType.FAMILY_REVOKED, claims.familyId().toString());
+        assertThat(meterRegistry.get("refresh.token.reuse").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should reject tokens of a family revoked on another node without touching the database")
+    @SuppressWarnings("unchecked")
+    void rotate_shouldRejectFromMemory_whenFamilyWasRevokedElsewhere() {
+        // Arrange
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(InvalidationType.FAMILY_REVOKED), handler.capture());
+        TokenClaims claims = refreshClaims();
+        handler.getValue().accept(claims.familyId().toString());
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.rotate(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verifyNoInteractions(familyRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject tokens of a revoked family without touching the database")
+    void rotate_shouldRejectFromMemory_whenFamilyIsRevoked() {
+        // Arrange
+        TokenClaims claims = refreshClaims();
+        when(familyRepository.rotate(any(), any(), any(), any(), any())).thenReturn(0);
+        assertThatThrownBy(() -> refreshTokenService.rotate(claims)).isInstanceOf(InvalidCookieException.class);
+        clearInvocations(familyRepository);
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.rotate(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verifyNoInteractions(familyRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject access tokens and refresh tokens without family")
+    void rotate_shouldReject_whenTokenIsNotRefreshToken() {
+        // Arrange
+        TokenClaims claims = new TokenClaims(user.id(), user.username(), TokenClaims.ACCESS, null, null,
+                NOW, NOW.plusMillis(EXPIRATION_MILLIS));
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.rotate(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token invalid");
+        verifyNoInteractions(familyRepository);
+    }
+
+    @Test
+    @DisplayName("Should keep a refresh token in use while it is younger than the rotation threshold")
+    void refresh_shouldKeepToken_whenTokenIsFresh() {
+        // Arrange
+        TokenClaims claims = refreshClaimsIssuedAgo(Duration.ofSeconds(29));
+        when(familyRepository.isCurrent(claims.familyId(), claims.tokenId(), NOW)).thenReturn(true);
+
+        // Act
+        Optional<String> token = refreshTokenService.refresh(claims);
+
+        // Assert
+        assertThat(token).isEmpty();
+        verify(familyRepository, never()).rotate(any(), any(), any(), any(), any());
+        verify(jwtUtils, never()).generateRefreshToken(any(), any(), any(), anyLong());
+        assertThat(meterRegistry.get("refresh.token.refreshes").tag("rotated", "false").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should rotate a refresh token once it is past the rotation threshold")
+    void refresh_shouldRotateToken_whenTokenIsPastThreshold() {
+        // Arrange
+        TokenClaims claims = refreshClaimsIssuedAgo(Duration.ofSeconds(30));
+        when(familyRepository.rotate(eq(claims.familyId()), eq(claims.tokenId()), any(), any(), eq(NOW)))
+                .thenReturn(1);
+        when(jwtUtils.generateRefreshToken(eq(user), eq(claims.familyId()), any(), eq(EXPIRATION_MILLIS)))
+                .thenReturn("next");
+
+        // Act
+        Optional<String> token = refreshTokenService.refresh(claims);
+
+        // Assert
+        assertThat(token).contains("next");
+        verify(familyRepository, never()).isCurrent(any(), any(), any());
+        assertThat(meterRegistry.get("refresh.token.refreshes").tag("rotated", "true").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should revoke the family when a fresh token was already rotated away")
+    void refresh_shouldRevokeFamily_whenFreshTokenIsNotCurrent() {
+        // Arrange
+        TokenClaims claims = refreshClaimsIssuedAgo(Duration.ofSeconds(1));
+        when(familyRepository.isCurrent(claims.familyId(), claims.tokenId(), NOW)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.refresh(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verify(familyRepository, times(1)).revoke(claims.familyId());
+        assertThat(meterRegistry.get("refresh.token.reuse").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should reject a fresh token of a revoked family without touching the database")
+    @SuppressWarnings("unchecked")
+    void refresh_shouldRejectFromMemory_whenFamilyIsRevoked() {
+        // Arrange
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(InvalidationType.FAMILY_REVOKED), handler.capture());
+        TokenClaims claims = refreshClaimsIssuedAgo(Duration.ZERO);
+        handler.getValue().accept(claims.familyId().toString());
+
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService.refresh(claims))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verifyNoInteractions(familyRepository);
+    }
+
+    @Test
+    @DisplayName("Should rotate on every refresh when the rotation threshold is zero")
+    void refresh_shouldAlwaysRotate_whenThresholdIsZero() {
+        // Arrange
+        RefreshTokenServiceImpl alwaysRotating = refreshTokenService(0);
+        TokenClaims claims = refreshClaimsIssuedAgo(Duration.ZERO);
+        when(familyRepository.rotate(any(), any(), any(), any(), any())).thenReturn(1);
+        when(jwtUtils.generateRefreshToken(any(), any(), any(), anyLong())).thenReturn("next");
+
+        // Act
+        Optional<String> token = alwaysRotating.refresh(claims);
+
+        // Assert
+        assertThat(token).contains("next");
+    }
+
+    @Test
+    @DisplayName("Should reject a rotation threshold outside of the token lifetime")
+    void constructor_shouldRejectInvalidThreshold() {
+        // Act & Assert
+        assertThatThrownBy(() -> refreshTokenService(1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should delete expired families in batches until a batch is not full")
+    void purgeExpired_shouldDeleteInBoundedBatches() {
+        // Arrange
+        when(familyRepository.deleteExpired(NOW, 2)).thenReturn(2, 2, 1);
+
+        // Act
+        refreshTokenService.purgeExpired();
+
+        // Assert
+        verify(familyRepository, times(3)).deleteExpired(NOW, 2);
+    }
+
+    private RefreshTokenServiceImpl refreshTokenService(double rotationThreshold) {
+        return new RefreshTokenServiceImpl(familyRepository, jwtUtils, invalidationBus, meterRegistry,
+                EXPIRATION_MILLIS, rotationThreshold, 100, 2, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private TokenClaims refreshClaimsIssuedAgo(Duration age) {
+        Instant issuedAt = NOW.minus(age);
+        return new TokenClaims(user.id(), user.username(), TokenClaims.REFRESH, UUID.randomUUID(), UUID.randomUUID(),
+                issuedAt, issuedAt.plusMillis(EXPIRATION_MILLIS));
+    }
+
+    private TokenClaims refreshClaims() {
+        return new TokenClaims(user.id(), user.username(), TokenClaims.REFRESH, UUID.randomUUID(), UUID.randomUUID(),
+                NOW, NOW.plusMillis(EXPIRATION_MILLIS));
+    }
+}
@@ -0,0 +1,165 @@
+package org.soup.authservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.soup.authservice.model.InvalidationType;
+import org.soup.authservice.model.TokenClaims;
+import org.soup.authservice.repository.RevokedTokenRepository;
+import org.soup.authservice.repository.UserTokenCutoffRepository;
+import org.soup.authservice.repository.entity.RevokedTokenEntity;
+import org.soup.authservice.repository.entity.UserTokenCutoffEntity;
+import org.soup.authservice.utils.InvalidationBus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceImplTest {
+    private static final long BUCKET_MILLIS = Duration.ofHours(1).toMillis();
+    private static final long MAX_LIFETIME_MILLIS = Duration.ofDays(1).toMillis();
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00.250Z");
+
+    AutoCloseable openMocks;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private UserTokenCutoffRepository cutoffRepository;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    private TokenRevocationServiceImpl revocationService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        openMocks = MockitoAnnotations.openMocks(this);
+        revocationService = new TokenRevocationServiceImpl(revokedTokenRepository, cutoffRepository,
+                refreshTokenService, invalidationBus, new SimpleMeterRegistry(), BUCKET_MILLIS, MAX_LIFETIME_MILLIS, 2, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        openMocks.close();
+    }
+
+    @Test
+    @DisplayName("Should persist a revoked token and reject it from memory afterwards")
+    void revokeToken_shouldPersistAndRevokeInMemory() {
+        // Arrange
+        TokenClaims claims = accessClaims(NOW, NOW.plusSeconds(60));
+
+        // Act
+        revocationService.revokeToken(claims);
+
+        // Assert
+        verify(revokedTokenRepository, times(1)).insertRevokedToken(claims.tokenId(), claims.expiresAt());
+        verify(invalidationBus, times(1)).publish(InvalidationType.TOKEN_REVOKED,
+                claims.tokenId() + "," + claims.expiresAt().toEpochMilli());
+        assertThat(revocationService.isRevoked(claims)).isTrue();
+        assertThat(revocationService.isRevoked(accessClaims(NOW, NOW.plusSeconds(60)))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should revoke every token issued up to the current second and the user's refresh families")
+    void revokeUser_shouldSetCutoffAndRevokeFamilies() {
+        // Act
+        revocationService.revokeUser(userId);
+
+        // Assert
+        Instant cutoff = Instant.parse("2024-01-01T00:00:01Z");
+        verify(cutoffRepository, times(1)).upsertCutoff(userId, cutoff);
+        verify(refreshTokenService, times(1)).revokeAll(userId);
+        verify(invalidationBus, times(1)).publish(InvalidationType.USER_REVOKED, userId + "," + cutoff.toEpochMilli());
+        // iat is truncated to seconds, so a token issued a moment ago carries the current second
+        assertThat(revocationService.isRevoked(accessClaims(Instant.parse("2024-01-01T00:00:00Z"), NOW.plusSeconds(60))))
+                .isTrue();
+        assertThat(revocationService.isRevoked(accessClaims(cutoff, cutoff.plusSeconds(60)))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should apply revocations made on other nodes without writing them again")
+    @SuppressWarnings("unchecked")
+    void subscribe_shouldApplyRemoteRevocations() {
+        // Arrange
+        ArgumentCaptor<Consumer<String>> tokenHandler = ArgumentCaptor.forClass(Consumer.class);
+        ArgumentCaptor<Consumer<String>> userHandler = ArgumentCaptor.forClass(Consumer.class);
+        verify(invalidationBus).subscribe(eq(InvalidationType.TOKEN_REVOKED), tokenHandler.capture());
+        verify(invalidationBus).subscribe(eq(InvalidationType.USER_REVOKED), userHandler.capture());
+        TokenClaims revokedToken = accessClaims(NOW, NOW.plusSeconds(60));
+        UUID otherUserId = UUID.randomUUID();
+
+        // Act
+        tokenHandler.getValue().accept(revokedToken.tokenId() + "," + revokedToken.expiresAt().toEpochMilli());
+        userHandler.getValue().accept(otherUserId + "," + NOW.toEpochMilli());
+
+        // Assert
+        assertThat(revocationService.isRevoked(revokedToken)).isTrue();
+        assertThat(revocationService.isRevoked(new TokenClaims(otherUserId, "other", TokenClaims.ACCESS,
+                UUID.randomUUID(), null, NOW.minusSeconds(1), NOW.plusSeconds(60)))).isTrue();
+        verifyNoInteractions(revokedTokenRepository, cutoffRepository);
+        verify(invalidationBus, never()).publish(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should load persisted revocations into memory")
+    void load_shouldRestoreRevocations() {
+        // Arrange
+        RevokedTokenEntity token = new RevokedTokenEntity();
+        token.setJti(UUID.randomUUID());
+        token.setExpiresAt(NOW.plusSeconds(60));
+        UserTokenCutoffEntity cutoff = new UserTokenCutoffEntity();
+        cutoff.setUserId(userId);
+        cutoff.setNotBefore(NOW);
+        when(revokedTokenRepository.findAllByExpiresAtAfter(NOW)).thenReturn(List.of(token));
+        when(cutoffRepository.findAllByNotBeforeAfter(NOW.minusMillis(MAX_LIFETIME_MILLIS)))
+                .thenReturn(List.of(cutoff));
+
+        // Act
+        revocationService.load();
+
+        // Assert
+        TokenClaims revokedToken = new TokenClaims(UUID.randomUUID(), "other", TokenClaims.ACCESS,
+                token.getJti(), null, NOW, token.getExpiresAt());
+        assertThat(revocationService.isRevoked(revokedToken)).isTrue();
+        assertThat(revocationService.isRevoked(accessClaims(NOW.minusSeconds(1), NOW.plusSeconds(60)))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should delete expired revocations in batches until a batch comes back short")
+    void purgeExpired_shouldDeleteInBatches() {
+        // Arrange
+        when(revokedTokenRepository.deleteExpired(NOW, 2)).thenReturn(2, 2, 1);
+        when(cutoffRepository.deleteExpired(NOW.minusMillis(MAX_LIFETIME_MILLIS), 2)).thenReturn(0);
+
+        // Act
+        revocationService.purgeExpired();
+
+        // Assert
+        verify(revokedTokenRepository, times(3)).deleteExpired(NOW, 2);
+        verify(cutoffRepository, times(1)).deleteExpired(NOW.minusMillis(MAX_LIFETIME_MILLIS), 2);
+    }
+
+    private TokenClaims accessClaims(Instant issuedAt, Instant expiresAt) {
+        return new TokenClaims(userId, "user", TokenClaims.ACCESS, UUID.randomUUID(), null, issuedAt, expiresAt);
+    }
+}
@@ -1,23 +1,28 @@
 package org.soup.authservice.service;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.soup.authservice.model.TokenClaims;
 import org.soup.authservice.model.User;
 import org.soup.authservice.utils.JwtUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
 
+import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +33,12 @@ class TokenServiceImplTest {
     @MockBean
     private JwtUtils jwtUtils;
 
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
+    @MockBean
+    private TokenRevocationService revocationService;
+
     @Mock
     private HttpServletRequest request;
 
@@ -35,7 +46,6 @@ class TokenServiceImplTest {
     private HttpServletResponse response;
 
     @Autowired
-    @InjectMocks
     private TokenServiceImpl tokenService;
 
     @BeforeEach
@@ -53,14 +63,48 @@ class TokenServiceImplTest {
     void addAuthCookiesToResponse_shouldAddCookiesToResponse() {
         // Arrange
         User user = new User(USER_ID, USERNAME);
-        when(jwtUtils.generateToken(user, 900000L)).thenReturn(VALID_ACCESS_TOKEN);
-        when(jwtUtils.generateToken(user, 2592000000L)).thenReturn(VALID_REFRESH_TOKEN);
+        when(jwtUtils.generateToken(eq(user), any(), anyLong())).thenReturn(VALID_ACCESS_TOKEN);
+        when(refreshTokenService.createFamily(eq(user), any())).thenReturn(VALID_REFRESH_TOKEN);
 
         // Act
         tokenService.addAuthCookiesToResponse(user, response);
 
         // Assert
-        verify(response, times(2)).addCookie(any(Cookie.class));
+        verify(response, times(2)).addHeader(eq(HttpHeaders.SET_COOKIE), anyString());
+    }
+
+    @Test
+    @DisplayName("Should create Set-Cookie headers for both tokens")
+    void createAuthCookieHeaders_shouldContainBothTokens() {
+        // Arrange
+        User user = new User(USER_ID, USERNAME);
+        when(jwtUtils.generateToken(eq(user), any(), anyLong())).thenReturn(VALID_ACCESS_TOKEN);
+        when(refreshTokenService.createFamily(eq(user), any())).thenReturn(VALID_REFRESH_TOKEN);
+
+        // Act
+        HttpHeaders headers = tokenService.createAuthCookieHeaders(user);
+
+        // Assert
+        assertThat(headers.get(HttpHeaders.SET_COOKIE)).satisfiesExactly(
+                cookie -> assertThat(cookie).startsWith("Soup-Access-Token=" + VALID_ACCESS_TOKEN).contains("HttpOnly"),
+                cookie -> assertThat(cookie).startsWith("Soup-Refresh-Token=" + VALID_REFRESH_TOKEN).contains("Path=/refresh"));
+    }
+
+    @Test
+    @DisplayName("Should take cookie lifetimes and attributes from the configuration")
+    void createAuthCookieHeaders_shouldUseConfiguredCookieAttributes() {
+        // Arrange
+        User user = new User(USER_ID, USERNAME);
+        when(jwtUtils.generateToken(eq(user), any(), anyLong())).thenReturn(VALID_ACCESS_TOKEN);
+        when(refreshTokenService.createFamily(eq(user), any())).thenReturn(VALID_REFRESH_TOKEN);
+
+        // Act
+        HttpHeaders headers = tokenService.createAuthCookieHeaders(user);
+
+        // Assert
+        assertThat(headers.get(HttpHeaders.SET_COOKIE)).satisfiesExactly(
+                cookie -> assertThat(cookie).contains("Max-Age=86400", "Secure", "SameSite=Lax"),
+                cookie -> assertThat(cookie).contains("Max-Age=2592000", "Secure", "SameSite=Lax"));
     }
 
     @Test
@@ -69,16 +113,44 @@ class TokenServiceImplTest {
         // Arrange
         Cookie refreshTokenCookie = new Cookie("Soup-Refresh-Token", VALID_REFRESH_TOKEN);
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(jwtUtils.verifyToken(VALID_REFRESH_TOKEN)).thenReturn(true);
-        when(jwtUtils.getIdFromToken(VALID_REFRESH_TOKEN)).thenReturn(USER_ID);
-        when(jwtUtils.getUsernameFromToken(VALID_REFRESH_TOKEN)).thenReturn(USERNAME);
+        Instant now = Instant.now();
+        TokenClaims claims = new TokenClaims(USER_ID, USERNAME, TokenClaims.REFRESH,
+                UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(60));
+        when(jwtUtils.verifyAndDecode(VALID_REFRESH_TOKEN)).thenReturn(claims);
+        when(refreshTokenService.refresh(claims)).thenReturn(Optional.of("rotated-refresh-token"));
+        when(jwtUtils.generateToken(eq(claims.toUser()), eq(claims.familyId()), anyLong())).thenReturn(VALID_ACCESS_TOKEN);
+
+        // Act
+        User user = tokenService.refreshTokens(request, response);
+
+        // Assert
+        assertThat(user).isEqualTo(claims.toUser());
+        verify(jwtUtils, times(1)).verifyAndDecode(VALID_REFRESH_TOKEN);
+        verify(refreshTokenService, times(1)).refresh(claims);
+        verify(refreshTokenService, never()).createFamily(any(), any());
+        verify(jwtUtils, never()).verifyToken(anyString());
+        verify(response, times(2)).addHeader(eq(HttpHeaders.SET_COOKIE), anyString());
+    }
+
+    @Test
+    @DisplayName("Should only re-issue the access token while the refresh token is fresh")
+    void refreshTokens_shouldSkipRefreshCookie_whenRefreshTokenIsKept() {
+        // Arrange
+        Cookie refreshTokenCookie = new Cookie("Soup-Refresh-Token", VALID_REFRESH_TOKEN);
+        when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
+        Instant now = Instant.now();
+        TokenClaims claims = new TokenClaims(USER_ID, USERNAME, TokenClaims.REFRESH,
+                UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(60));
+        when(jwtUtils.verifyAndDecode(VALID_REFRESH_TOKEN)).thenReturn(claims);
+        when(refreshTokenService.refresh(claims)).thenReturn(Optional.empty());
+        when(jwtUtils.generateToken(eq(claims.toUser()), eq(claims.familyId()), anyLong())).thenReturn(VALID_ACCESS_TOKEN);
 
         // Act
         tokenService.refreshTokens(request, response);
 
         // Assert
-        verify(jwtUtils).verifyToken(VALID_REFRESH_TOKEN);
-        verify(response, times(2)).addCookie(any(Cookie.class));
+        verify(response, times(1)).addHeader(eq(HttpHeaders.SET_COOKIE), startsWith("Soup-Access-Token="));
+        verify(response, never()).addHeader(eq(HttpHeaders.SET_COOKIE), startsWith("Soup-Refresh-Token="));
     }
 
     @Test
@@ -99,11 +171,73 @@ class TokenServiceImplTest {
         // Arrange
         Cookie refreshTokenCookie = new Cookie("Soup-Refresh-Token", "invalid-token");
         when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
-        when(jwtUtils.verifyToken(anyString())).thenReturn(false);
+        when(jwtUtils.verifyAndDecode(anyString())).thenThrow(new JWTVerificationException("invalid"));
 
         // Act & Assert
         assertThatThrownBy(() -> tokenService.refreshTokens(request, response))
                 .isInstanceOf(InvalidCookieException.class)
                 .hasMessage("Refresh token invalid");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should not rotate a refresh token issued before the user was revoked")
+    void refreshTokens_shouldThrowException_whenRefreshTokenIsRevoked() {
+        // Arrange
+        Cookie refreshTokenCookie = new Cookie("Soup-Refresh-Token", VALID_REFRESH_TOKEN);
+        when(request.getCookies()).thenReturn(new Cookie[]{refreshTokenCookie});
+        Instant now = Instant.now();
+        TokenClaims claims = new TokenClaims(USER_ID, USERNAME, TokenClaims.REFRESH,
+                UUID.randomUUID(), UUID.randomUUID(), now, now.plusSeconds(60));
+        when(jwtUtils.verifyAndDecode(VALID_REFRESH_TOKEN)).thenReturn(claims);
+        when(revocationService.isRevoked(claims)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> tokenService.refreshTokens(request, response))
+                .isInstanceOf(InvalidCookieException.class)
+                .hasMessage("Refresh token revoked");
+        verify(refreshTokenService, never()).refresh(any());
+    }
+
+    @Test
+    @DisplayName("Should revoke the access token and its family on logout and clear both cookies")
+    void logout_shouldRevokeTokensAndClearCookies() {
+        // Arrange
+        when(request.getCookies()).thenReturn(new Cookie[]{
+                new Cookie("Soup-Access-Token", VALID_ACCESS_TOKEN),
+                new Cookie("Soup-Refresh-Token", VALID_REFRESH_TOKEN)});
+        Instant now = Instant.now();
+        UUID familyId = UUID.randomUUID();
+        TokenClaims accessClaims = new TokenClaims(USER_ID, USERNAME, TokenClaims.ACCESS,
+                UUID.randomUUID(), familyId, now, now.plusSeconds(60));
+        TokenClaims refreshClaims = new TokenClaims(USER_ID, USERNAME, TokenClaims.REFRESH,
+                UUID.randomUUID(), familyId, now, now.plusSeconds(60));
+        when(jwtUtils.verifyAndDecode(VALID_ACCESS_TOKEN)).thenReturn(accessClaims);
+        when(jwtUtils.verifyAndDecode(VALID_REFRESH_TOKEN)).thenReturn(refreshClaims);
+
+        // Act
+        HttpHeaders headers = tokenService.logout(request);
+
+        // Assert
+        verify(revocationService, times(1)).revokeToken(accessClaims);
+        verify(refreshTokenService, atLeastOnce()).revokeFamily(familyId);
+        assertThat(headers.get(HttpHeaders.SET_COOKIE)).satisfiesExactly(
+                cookie -> assertThat(cookie).startsWith("Soup-Access-Token=;").contains("Max-Age=0"),
+                cookie -> assertThat(cookie).startsWith("Soup-Refresh-Token=;").contains("Max-Age=0"));
+    }
+
+    @Test
+    @DisplayName("Should still clear cookies on logout when the tokens no longer verify")
+    void logout_shouldSkipRevocation_whenTokensAreInvalid() {
+        // Arrange
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("Soup-Access-Token", "expired-token")});
+        when(jwtUtils.verifyAndDecode(anyString())).thenThrow(new JWTVerificationException("expired"));
+
+        // Act
+        HttpHeaders headers = tokenService.logout(request);
+
+        // Assert
+        verify(revocationService, never()).revokeToken(any());
+        verify(refreshTokenService, never()).revokeFamily(any());
+        assertThat(headers.get(HttpHeaders.SET_COOKIE)).hasSize(2);
+    }
+}
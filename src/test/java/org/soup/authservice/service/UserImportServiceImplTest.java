@@ -0,0 +1,121 @@
+package org.soup.authservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.User;
+import org.soup.authservice.model.UserImportProgress;
+import org.soup.authservice.utils.UserImportReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs imports against the local Postgres, as loading relies on {@code COPY} and {@code ON CONFLICT}.
+ */
+@SpringBootTest(properties = {"security.user-import.chunk-size=2", "security.password.cost=4"})
+class UserImportServiceImplTest {
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final String prefix = "import-" + UUID.randomUUID() + "-";
+
+    @Test
+    @DisplayName("Should import new users in chunks and skip invalid records and repeated usernames")
+    void importUsers_shouldLoadUsersAndCountSkippedRecords() throws IOException {
+        // Arrange
+        String legacyHash = new BCryptPasswordEncoder(4).encode("legacy-password");
+        String input = line("first", "password", null)
+                + line("second", null, legacyHash)
+                + "{\"username\": \"" + prefix + "broken\"}\n"
+                + line("first", "other", null)
+                + line("third", "password", null);
+        List<UserImportProgress> reports = new ArrayList<>();
+
+        // Act
+        UserImportProgress result = userImportService.importUsers(ndjson(input), 0, reports::add);
+
+        // Assert
+        assertThat(result).isEqualTo(new UserImportProgress(5, 3, 1, 1, true, null));
+        assertThat(reports).hasSize(3).last().isEqualTo(result);
+        assertThat(reports.get(0).records()).isEqualTo(2);
+        User imported = authService.authenticateUser(prefix + "first", "password").join();
+        assertThat(imported.username()).isEqualTo(prefix + "first");
+        User legacy = authService.authenticateUser(prefix + "second", "legacy-password").join();
+        assertThat(legacy.username()).isEqualTo(prefix + "second");
+    }
+
+    @Test
+    @DisplayName("Should leave existing users untouched when an import is repeated or resumed")
+    void importUsers_shouldSkipExistingUsers() throws IOException {
+        // Arrange
+        String input = line("first", "password", null) + line("second", "password", null)
+                + line("third", "password", null);
+        userImportService.importUsers(ndjson(line("first", "password", null)), 0, progress -> {
+        });
+        String hashBefore = passwordOf("first");
+
+        // Act
+        UserImportProgress resumed = userImportService.importUsers(ndjson(input), 1, progress -> {
+        });
+        UserImportProgress repeated = userImportService.importUsers(ndjson(input), 0, progress -> {
+        });
+
+        // Assert
+        assertThat(resumed).isEqualTo(new UserImportProgress(3, 2, 0, 0, true, null));
+        assertThat(repeated).isEqualTo(new UserImportProgress(3, 0, 3, 0, true, null));
+        assertThat(passwordOf("first")).isEqualTo(hashBefore);
+    }
+
+    @Test
+    @DisplayName("Should import CSV input")
+    void importUsers_shouldReadCsv() throws IOException {
+        // Arrange
+        String input = "username,password\n" + prefix + "csv,\"pass,word\"\n";
+        UserImportReader reader = new UserImportReader(new StringReader(input), UserImportReader.Format.CSV,
+                objectMapper);
+
+        // Act
+        UserImportProgress result = userImportService.importUsers(reader, 0, progress -> {
+        });
+
+        // Assert
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(authService.authenticateUser(prefix + "csv", "pass,word").join().username())
+                .isEqualTo(prefix + "csv");
+    }
+
+    private String line(String username, String password, String passwordHash) {
+        return "{\"username\": \"" + prefix + username + "\""
+                + (password == null ? "" : ", \"password\": \"" + password + "\"")
+                + (passwordHash == null ? "" : ", \"password_hash\": \"" + passwordHash + "\"")
+                + "}\n";
+    }
+
+    private UserImportReader ndjson(String input) throws IOException {
+        return new UserImportReader(new StringReader(input), UserImportReader.Format.NDJSON, objectMapper);
+    }
+
+    private String passwordOf(String username) {
+        return jdbcTemplate.queryForObject("select password from users where username = ?", String.class,
+                prefix + username);
+    }
+}
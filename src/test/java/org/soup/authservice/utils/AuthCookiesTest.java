@@ -0,0 +1,87 @@
+package org.soup.authservice.utils;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthCookiesTest {
+    private static final long ACCESS_TOKEN_EXPIRATION_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long REFRESH_TOKEN_EXPIRATION_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    @Test
+    @DisplayName("Should write the access token cookie with the configured attributes")
+    void accessCookie_shouldContainConfiguredAttributes() {
+        // Arrange
+        AuthCookies authCookies = new AuthCookies(
+                ACCESS_TOKEN_EXPIRATION_MILLIS, REFRESH_TOKEN_EXPIRATION_MILLIS, true, "Strict");
+
+        // Act
+        String cookie = authCookies.accessCookie("token");
+
+        // Assert
+        assertThat(cookie).isEqualTo(
+                "Soup-Access-Token=token; Path=/; Max-Age=86400; Secure; HttpOnly; SameSite=Strict");
+    }
+
+    @Test
+    @DisplayName("Should not overflow Max-Age for refresh tokens living longer than 24 days")
+    void refreshCookie_shouldKeepFullLifetime() {
+        // Arrange
+        AuthCookies authCookies = new AuthCookies(
+                ACCESS_TOKEN_EXPIRATION_MILLIS, REFRESH_TOKEN_EXPIRATION_MILLIS, true, "Lax");
+
+        // Act
+        String cookie = authCookies.refreshCookie("token");
+
+        // Assert
+        assertThat(cookie).isEqualTo(
+                "Soup-Refresh-Token=token; Path=/refresh; Max-Age=2592000; Secure; HttpOnly; SameSite=Lax");
+    }
+
+    @Test
+    @DisplayName("Should omit Secure when it is disabled")
+    void accessCookie_shouldOmitSecure_whenDisabled() {
+        // Arrange
+        AuthCookies authCookies = new AuthCookies(
+                ACCESS_TOKEN_EXPIRATION_MILLIS, REFRESH_TOKEN_EXPIRATION_MILLIS, false, "Lax");
+
+        // Act
+        String cookie = authCookies.accessCookie("token");
+
+        // Assert
+        assertThat(cookie).doesNotContain("Secure");
+    }
+
+    @Test
+    @DisplayName("Should clear both cookies on the paths they were set on")
+    void clearedCookies_shouldExpireImmediately() {
+        // Arrange
+        AuthCookies authCookies = new AuthCookies(
+                ACCESS_TOKEN_EXPIRATION_MILLIS, REFRESH_TOKEN_EXPIRATION_MILLIS, true, "Lax");
+
+        // Act & Assert
+        assertThat(authCookies.clearedAccessCookie())
+                .isEqualTo("Soup-Access-Token=; Path=/; Max-Age=0; Secure; HttpOnly; SameSite=Lax");
+        assertThat(authCookies.clearedRefreshCookie())
+                .isEqualTo("Soup-Refresh-Token=; Path=/refresh; Max-Age=0; Secure; HttpOnly; SameSite=Lax");
+    }
+
+    @Test
+    @DisplayName("Should read the named cookie and return null when it is missing")
+    void read_shouldFindCookieByName() {
+        // Arrange
+        MockHttpServletRequest withCookies = new MockHttpServletRequest();
+        withCookies.setCookies(new Cookie("theme", "dark"), new Cookie(AuthCookies.REFRESH_TOKEN_NAME, "token"));
+        MockHttpServletRequest withoutCookies = new MockHttpServletRequest();
+
+        // Act & Assert
+        assertThat(AuthCookies.read(withCookies, AuthCookies.REFRESH_TOKEN_NAME)).isEqualTo("token");
+        assertThat(AuthCookies.read(withCookies, AuthCookies.ACCESS_TOKEN_NAME)).isNull();
+        assertThat(AuthCookies.read(withoutCookies, AuthCookies.ACCESS_TOKEN_NAME)).isNull();
+    }
+}
@@ -0,0 +1,74 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+    @Test
+    @DisplayName("Should contain every value that was put")
+    void mightContain_shouldReturnTrueForInsertedValues() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user-" + i));
+
+        // Act & Assert
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("user-" + i))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep false positive rate close to the configured probability")
+    void mightContain_shouldRespectFalsePositiveProbability() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user-" + i));
+
+        // Act
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("other-" + i))
+                .count();
+
+        // Assert
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+
+    @Test
+    @DisplayName("Should estimate false positive probability from the bits that are set")
+    void expectedFalsePositiveProbability_shouldGrowWithInsertions() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        // Act
+        double empty = filter.expectedFalsePositiveProbability();
+        IntStream.range(0, 10_000).forEach(i -> filter.put("user-" + i));
+        double full = filter.expectedFalsePositiveProbability();
+
+        // Assert
+        assertThat(empty).isZero();
+        assertThat(full).isBetween(0.005, 0.015);
+        assertThat(filter.memoryBytes()).isEqualTo(filter.bitCount() / 8);
+    }
+
+    @Test
+    @DisplayName("Should size bit array and hash functions from expected insertions")
+    void constructor_shouldComputeOptimalSize() {
+        // Act
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // Assert
+        assertThat(filter.bitCount()).isBetween(9_585_000L, 9_585_100L);
+        assertThat(filter.hashFunctions()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid false positive probability")
+    void constructor_shouldRejectInvalidProbability() {
+        // Act & Assert
+        assertThatThrownBy(() -> new BloomFilter(100, 1.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
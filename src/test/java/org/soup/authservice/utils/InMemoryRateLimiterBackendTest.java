@@ -0,0 +1,135 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.RateLimit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+class InMemoryRateLimiterBackendTest {
+    private static final RateLimit LIMIT = new RateLimit(5, Duration.ofMinutes(1));
+
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Should allow a burst up to the capacity and then report when the next permit is available")
+    void tryAcquire_shouldReject_whenBurstIsExhausted() {
+        // Arrange
+        InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend(100, clock, Runnable::run);
+        for (int i = 0; i < LIMIT.capacity(); i++) {
+            assertThat(backend.tryAcquire("key", LIMIT)).isZero();
+        }
+
+        // Act
+        long retryAfterMillis = backend.tryAcquire("key", LIMIT);
+
+        // Assert
+        assertThat(retryAfterMillis).isEqualTo(12_000L);
+        assertThat(backend.tryAcquire("other", LIMIT)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should refill permits evenly over the period")
+    void tryAcquire_shouldAllowAgain_afterEmissionInterval() {
+        // Arrange
+        InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend(100, clock, Runnable::run);
+        for (int i = 0; i < LIMIT.capacity(); i++) {
+            backend.tryAcquire("key", LIMIT);
+        }
+
+        // Act
+        clock.advance(Duration.ofSeconds(12));
+
+        // Assert
+        assertThat(backend.tryAcquire("key", LIMIT)).isZero();
+        assertThat(backend.tryAcquire("key", LIMIT)).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should drop buckets one period after their last use and keep active ones")
+    void tryAcquire_shouldExpireIdleBuckets() {
+        // Arrange
+        InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend(100, clock, Runnable::run);
+        backend.tryAcquire("idle", LIMIT);
+        clock.advance(Duration.ofSeconds(30));
+        for (int i = 0; i < LIMIT.capacity(); i++) {
+            backend.tryAcquire("active", LIMIT);
+        }
+
+        // Act
+        clock.advance(Duration.ofSeconds(31));
+
+        // Assert
+        assertThat(backend.size()).isEqualTo(1L);
+        // The active bucket was kept: only the 2 permits refilled in the last 31 s are available, not a full burst
+        assertThat(backend.tryAcquire("active", LIMIT)).isZero();
+        assertThat(backend.tryAcquire("active", LIMIT)).isZero();
+        assertThat(backend.tryAcquire("active", LIMIT)).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should keep admitting new keys while the maximum number of keys is held")
+    void tryAcquire_shouldAdmitNewKeys_whenFull() {
+        // Arrange
+        InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend(2, clock, Runnable::run);
+        backend.tryAcquire("first", LIMIT);
+        backend.tryAcquire("second", LIMIT);
+
+        // Act & Assert
+        for (int i = 0; i < 1000; i++) {
+            assertThat(backend.tryAcquire("flood-" + i, LIMIT)).isZero();
+        }
+        assertThat(backend.size()).isLessThanOrEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Should grant exactly the capacity to concurrent callers")
+    void tryAcquire_shouldNotOvergrant_underContention() throws Exception {
+        // Arrange
+        InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend(100, clock, Runnable::run);
+        RateLimit limit = new RateLimit(100, Duration.ofHours(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int granted = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (backend.tryAcquire("key", limit) == 0) {
+                        granted++;
+                    }
+                }
+                return granted;
+            }));
+        }
+        start.countDown();
+        int granted = 0;
+        for (Future<Integer> result : results) {
+            granted += result.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(granted).isEqualTo(limit.capacity());
+    }
+}
@@ -3,6 +3,7 @@ package org.soup.authservice.utils;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.TokenClaims;
 import org.soup.authservice.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -102,4 +103,47 @@ class JwtUtilsTest {
         assertThatThrownBy(() -> jwtUtils.getIdFromToken("invalid-token"))
                 .isInstanceOf(JWTVerificationException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should decode all claims from token with a single verification")
+    void verifyAndDecode_shouldReturnClaims() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        User user = new User(userId, "user");
+        String token = jwtUtils.generateToken(user, 60000);
+
+        // Act
+        TokenClaims claims = jwtUtils.verifyAndDecode(token);
+
+        // Assert
+        assertThat(claims.id()).isEqualTo(userId);
+        assertThat(claims.username()).isEqualTo("user");
+        assertThat(claims.expiresAt()).isEqualTo(claims.issuedAt().plusMillis(60000));
+    }
+
+    @Test
+    @DisplayName("Should give every access token its own id and the family it was issued with")
+    void generateToken_shouldAddTokenIdAndFamily() {
+        // Arrange
+        User user = new User(UUID.randomUUID(), "user");
+        UUID familyId = UUID.randomUUID();
+
+        // Act
+        TokenClaims first = jwtUtils.verifyAndDecode(jwtUtils.generateToken(user, familyId, 60000));
+        TokenClaims second = jwtUtils.verifyAndDecode(jwtUtils.generateToken(user, familyId, 60000));
+
+        // Assert
+        assertThat(first.type()).isEqualTo(TokenClaims.ACCESS);
+        assertThat(first.familyId()).isEqualTo(familyId);
+        assertThat(first.tokenId()).isNotNull().isNotEqualTo(second.tokenId());
+        assertThat(first.isRefreshToken()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should throw exception for invalid token when decoding claims")
+    void verifyAndDecode_shouldThrowExceptionForInvalidToken() {
+        // Act & Assert
+        assertThatThrownBy(() -> jwtUtils.verifyAndDecode("invalid-token"))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+}
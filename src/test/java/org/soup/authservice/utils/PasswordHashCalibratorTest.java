@@ -0,0 +1,93 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.security.SecureRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashCalibratorTest {
+    private static final String PASSWORD = "password";
+
+    @Test
+    @DisplayName("Should store algorithm id and configured cost with every hash")
+    void createEncoder_shouldPrefixHashWithAlgorithmAndCost() {
+        // Arrange
+        PasswordEncoder encoder = new PasswordHashCalibrator("bcrypt", 100, 5).createEncoder();
+
+        // Act
+        String hash = encoder.encode(PASSWORD);
+
+        // Assert
+        assertThat(hash).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.matches(PASSWORD, hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should match legacy hashes without prefix and request their upgrade")
+    void createEncoder_shouldUpgradeLegacyHash() {
+        // Arrange
+        PasswordEncoder encoder = new PasswordHashCalibrator("bcrypt", 100, 5).createEncoder();
+        String legacyHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+
+        // Act & Assert
+        assertThat(encoder.matches(PASSWORD, legacyHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should request upgrade of hashes with a lower cost than configured")
+    void createEncoder_shouldUpgradeWeakerHash() {
+        // Arrange
+        String weakHash = new PasswordHashCalibrator("bcrypt", 100, 4).createEncoder().encode(PASSWORD);
+        PasswordEncoder encoder = new PasswordHashCalibrator("bcrypt", 100, 6).createEncoder();
+
+        // Act & Assert
+        assertThat(encoder.matches(PASSWORD, weakHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(weakHash)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should match bcrypt hashes and upgrade them when argon2 is selected")
+    void createEncoder_shouldMigrateBCryptToArgon2() {
+        // Arrange
+        String bcryptHash = new PasswordHashCalibrator("bcrypt", 100, 4).createEncoder().encode(PASSWORD);
+        PasswordEncoder encoder = new PasswordHashCalibrator("argon2", 100, 2).createEncoder();
+
+        // Act
+        String argon2Hash = encoder.encode(PASSWORD);
+
+        // Assert
+        assertThat(encoder.matches(PASSWORD, bcryptHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(bcryptHash)).isTrue();
+        assertThat(argon2Hash).startsWith("{argon2}$argon2id$");
+        assertThat(encoder.matches(PASSWORD, argon2Hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(argon2Hash)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should never calibrate bcrypt below the library default strength")
+    void calibrateBCryptStrength_shouldNotGoBelowDefault() {
+        // Arrange
+        PasswordHashCalibrator calibrator = new PasswordHashCalibrator("bcrypt", 1, 0);
+
+        // Act
+        int strength = calibrator.calibrateBCryptStrength(new SecureRandom());
+
+        // Assert
+        assertThat(strength).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown algorithms")
+    void constructor_shouldRejectUnknownAlgorithm() {
+        // Act & Assert
+        assertThatThrownBy(() -> new PasswordHashCalibrator("md5", 100, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
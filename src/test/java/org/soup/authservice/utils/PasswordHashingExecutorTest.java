@@ -0,0 +1,69 @@
+package org.soup.authservice.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+    private PasswordHashingExecutor hashingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        hashingExecutor = new PasswordHashingExecutor(1, 1, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should complete future with the task result")
+    void submit_shouldCompleteWithTaskResult() {
+        // Act
+        CompletableFuture<String> result = hashingExecutor.submit(() -> "hash");
+
+        // Assert
+        assertThat(result.join()).isEqualTo("hash");
+    }
+
+    @Test
+    @DisplayName("Should reject task immediately when pool and queue are full")
+    void submit_shouldRejectTask_whenPoolAndQueueAreFull() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = hashingExecutor.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+            return true;
+        });
+        started.await();
+        CompletableFuture<Boolean> queued = hashingExecutor.submit(() -> true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> hashingExecutor.submit(() -> true))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(running.join()).isTrue();
+        assertThat(queued.join()).isTrue();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
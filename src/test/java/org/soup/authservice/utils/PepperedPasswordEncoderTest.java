@@ -0,0 +1,41 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PepperedPasswordEncoderTest {
+    private static final String PASSWORD = "password";
+
+    private final PasswordEncoder encoder = new PepperedPasswordEncoder("pepper",
+            new PasswordHashCalibrator("bcrypt", 100, 4).createEncoder());
+
+    @Test
+    @DisplayName("Should only match a hash with the pepper it was computed with")
+    void matches_shouldRequirePepper() {
+        // Arrange
+        String hash = encoder.encode(PASSWORD);
+        PasswordEncoder otherPepper = new PepperedPasswordEncoder("other",
+                new PasswordHashCalibrator("bcrypt", 100, 4).createEncoder());
+
+        // Act & Assert
+        assertThat(encoder.matches(PASSWORD, hash)).isTrue();
+        assertThat(otherPepper.matches(PASSWORD, hash)).isFalse();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should match imported hashes without the pepper and request their upgrade")
+    void matches_shouldAcceptImportedHashWithoutPepper() {
+        // Arrange
+        String importedHash = PepperedPasswordEncoder.IMPORTED_PREFIX + new BCryptPasswordEncoder(4).encode(PASSWORD);
+
+        // Act & Assert
+        assertThat(encoder.matches(PASSWORD, importedHash)).isTrue();
+        assertThat(encoder.matches("wrong", importedHash)).isFalse();
+        assertThat(encoder.upgradeEncoding(importedHash)).isTrue();
+    }
+}
@@ -0,0 +1,105 @@
+package org.soup.authservice.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.InvalidationType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostgresInvalidationBusTest {
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private final PostgresInvalidationBus bus = new PostgresInvalidationBus(false, "soup_invalidation", 2, 1000,
+            "jdbc:postgresql://localhost/unused", "user", "password", null, new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Should send all events of a batch in one payload when they fit")
+    void payloads_shouldPackEventsIntoOnePayload() {
+        // Act
+        List<String> payloads = PostgresInvalidationBus.payloads(NODE_ID, List.of("tfirst", "usecond"));
+
+        // Assert
+        assertThat(payloads).containsExactly(NODE_ID + "\ntfirst\nusecond");
+    }
+
+    @Test
+    @DisplayName("Should split a batch so that no payload exceeds the NOTIFY limit")
+    void payloads_shouldSplitLargeBatches() {
+        // Arrange
+        String event = "t" + "x".repeat(99);
+        List<String> events = Collections.nCopies(200, event);
+
+        // Act
+        List<String> payloads = PostgresInvalidationBus.payloads(NODE_ID, events);
+
+        // Assert
+        assertThat(payloads).hasSizeGreaterThan(1)
+                .allSatisfy(payload -> assertThat(payload.length())
+                        .isLessThanOrEqualTo(PostgresInvalidationBus.MAX_PAYLOAD_BYTES));
+        assertThat(payloads.stream().mapToLong(payload -> payload.split("\n").length - 1).sum()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should pass decoded keys of other nodes to the subscribers of their type")
+    void dispatch_shouldCallSubscribersOfType() {
+        // Arrange
+        List<String> usernames = new ArrayList<>();
+        List<String> families = new ArrayList<>();
+        bus.subscribe(InvalidationType.USERNAME_ADDED, usernames::add);
+        bus.subscribe(InvalidationType.FAMILY_REVOKED, families::add);
+
+        // Act
+        bus.dispatch(NODE_ID + "\nnsoup+lover%0Ais%2Chere\nnplain\n?unknown");
+
+        // Assert
+        assertThat(usernames).containsExactly("soup lover\nis,here", "plain");
+        assertThat(families).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should ignore notifications the node sent itself")
+    void dispatch_shouldSkipOwnNotifications() {
+        // Arrange
+        List<String> usernames = new ArrayList<>();
+        bus.subscribe(InvalidationType.USERNAME_ADDED, usernames::add);
+
+        // Act
+        bus.dispatch(bus.nodeId() + "\nnuser");
+
+        // Assert
+        assertThat(usernames).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep dispatching when one subscriber fails")
+    void dispatch_shouldIsolateFailingSubscribers() {
+        // Arrange
+        List<String> usernames = new ArrayList<>();
+        bus.subscribe(InvalidationType.USERNAME_ADDED, key -> {
+            throw new IllegalStateException("broken");
+        });
+        bus.subscribe(InvalidationType.USERNAME_ADDED, usernames::add);
+
+        // Act
+        bus.dispatch(NODE_ID + "\nnuser");
+
+        // Assert
+        assertThat(usernames).containsExactly("user");
+    }
+
+    @Test
+    @DisplayName("Should refuse channel names that cannot be used in LISTEN unquoted")
+    void constructor_shouldRejectInvalidChannel() {
+        // Act & Assert
+        assertThatThrownBy(() -> new PostgresInvalidationBus(false, "soup; drop table users", 2, 1000,
+                "jdbc:postgresql://localhost/unused", "user", "password", null, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
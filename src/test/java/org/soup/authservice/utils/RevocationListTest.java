@@ -0,0 +1,111 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.TokenClaims;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevocationListTest {
+    private static final long BUCKET_MILLIS = Duration.ofHours(1).toMillis();
+    private static final long MAX_LIFETIME_MILLIS = Duration.ofDays(1).toMillis();
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final RevocationList revocationList = new RevocationList(BUCKET_MILLIS, MAX_LIFETIME_MILLIS);
+
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should report a revoked token id and nothing else")
+    void isRevoked_shouldMatchRevokedTokenOnly() {
+        // Arrange
+        TokenClaims revoked = claims(UUID.randomUUID(), NOW, NOW.plus(Duration.ofMinutes(90)));
+        TokenClaims other = claims(UUID.randomUUID(), NOW, NOW.plus(Duration.ofMinutes(90)));
+
+        // Act
+        revocationList.revokeToken(revoked.tokenId(), revoked.expiresAt());
+
+        // Assert
+        assertThat(revocationList.isRevoked(revoked)).isTrue();
+        assertThat(revocationList.isRevoked(other)).isFalse();
+        assertThat(revocationList.revokedTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should revoke tokens issued before the user cutoff but not after it")
+    void isRevoked_shouldApplyUserCutoffToIssuedAt() {
+        // Arrange
+        revocationList.revokeIssuedBefore(userId, NOW);
+
+        // Act & Assert
+        assertThat(revocationList.isRevoked(claims(UUID.randomUUID(), NOW.minusSeconds(1), NOW.plusSeconds(60))))
+                .isTrue();
+        assertThat(revocationList.isRevoked(claims(UUID.randomUUID(), NOW, NOW.plusSeconds(60)))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep the latest cutoff when a user is revoked twice")
+    void revokeIssuedBefore_shouldKeepLatestCutoff() {
+        // Arrange
+        revocationList.revokeIssuedBefore(userId, NOW);
+
+        // Act
+        revocationList.revokeIssuedBefore(userId, NOW.minusSeconds(60));
+
+        // Assert
+        assertThat(revocationList.isRevoked(claims(UUID.randomUUID(), NOW.minusSeconds(30), NOW.plusSeconds(60))))
+                .isTrue();
+    }
+
+    @Test
+    @DisplayName("Should drop a bucket once every token in it has expired")
+    void purge_shouldDropExpiredBuckets() {
+        // Arrange
+        TokenClaims expiringSoon = claims(UUID.randomUUID(), NOW, NOW.plus(Duration.ofMinutes(30)));
+        TokenClaims expiringLater = claims(UUID.randomUUID(), NOW, NOW.plus(Duration.ofHours(3)));
+        revocationList.revokeToken(expiringSoon.tokenId(), expiringSoon.expiresAt());
+        revocationList.revokeToken(expiringLater.tokenId(), expiringLater.expiresAt());
+
+        // Act
+        revocationList.purge(NOW.plus(Duration.ofHours(1)));
+
+        // Assert
+        assertThat(revocationList.revokedTokenCount()).isEqualTo(1);
+        assertThat(revocationList.isRevoked(expiringLater)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep a bucket while it may still hold unexpired tokens")
+    void purge_shouldKeepCurrentBucket() {
+        // Arrange
+        TokenClaims claims = claims(UUID.randomUUID(), NOW, NOW.plus(Duration.ofMinutes(50)));
+        revocationList.revokeToken(claims.tokenId(), claims.expiresAt());
+
+        // Act
+        revocationList.purge(NOW.plus(Duration.ofMinutes(40)));
+
+        // Assert
+        assertThat(revocationList.isRevoked(claims)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should drop a user cutoff after the longest token lifetime")
+    void purge_shouldDropCutoffAfterMaxLifetime() {
+        // Arrange
+        revocationList.revokeIssuedBefore(userId, NOW);
+
+        // Act
+        revocationList.purge(NOW.plusMillis(MAX_LIFETIME_MILLIS));
+
+        // Assert
+        assertThat(revocationList.userCutoffCount()).isZero();
+    }
+
+    private TokenClaims claims(UUID tokenId, Instant issuedAt, Instant expiresAt) {
+        return new TokenClaims(userId, "user", TokenClaims.ACCESS, tokenId, null, issuedAt, expiresAt);
+    }
+}
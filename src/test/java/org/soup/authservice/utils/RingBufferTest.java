@@ -0,0 +1,110 @@
+package org.soup.authservice.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferTest {
+    @Test
+    @DisplayName("Should round the capacity up to a power of two")
+    void constructor_shouldRoundCapacityUp() {
+        // Act & Assert
+        assertThat(new RingBuffer<String>(2).capacity()).isEqualTo(2);
+        assertThat(new RingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new RingBuffer<String>(1024).capacity()).isEqualTo(1024);
+        assertThatThrownBy(() -> new RingBuffer<String>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should drain elements in the order they were offered")
+    void drainTo_shouldKeepOfferOrder() {
+        // Arrange
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+        buffer.offer("first");
+        buffer.offer("second");
+        buffer.offer("third");
+        List<String> drained = new ArrayList<>();
+
+        // Act
+        int count = buffer.drainTo(drained, 2);
+
+        // Assert
+        assertThat(count).isEqualTo(2);
+        assertThat(drained).containsExactly("first", "second");
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject elements while full and accept them again once drained")
+    void offer_shouldRejectWhenFull() {
+        // Arrange
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+        buffer.offer(1);
+        buffer.offer(2);
+
+        // Act
+        boolean acceptedWhenFull = buffer.offer(3);
+        buffer.drainTo(new ArrayList<>(), 1);
+        boolean acceptedAfterDrain = buffer.offer(3);
+
+        // Assert
+        assertThat(acceptedWhenFull).isFalse();
+        assertThat(acceptedAfterDrain).isTrue();
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 10);
+        assertThat(drained).containsExactly(2, 3);
+    }
+
+    @Test
+    @DisplayName("Should deliver every element exactly once with concurrent producers")
+    void offer_shouldNotLoseElements_whenProducersRace() throws Exception {
+        // Arrange
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        start.countDown();
+        List<Integer> drained = new ArrayList<>(producers * perProducer);
+        while (drained.size() < producers * perProducer) {
+            if (buffer.drainTo(drained, 64) == 0) {
+                Thread.onSpinWait();
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        Set<Integer> distinct = new HashSet<>(drained);
+        assertThat(distinct).hasSize(producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
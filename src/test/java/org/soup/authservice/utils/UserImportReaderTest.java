@@ -0,0 +1,79 @@
+package org.soup.authservice.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.ImportedUser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserImportReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should read one user per NDJSON line and mark unparsable lines")
+    void next_shouldReadNdjson() throws IOException {
+        // Arrange
+        String input = """
+                {"username": "plain", "password": "secret"}
+
+                {"username": "hashed", "password_hash": "$2a$04$hash"}
+                not json
+                """;
+
+        // Act
+        List<ImportedUser> users = readAll(input, UserImportReader.Format.NDJSON);
+
+        // Assert
+        assertThat(users).containsExactly(
+                new ImportedUser("plain", "secret", null),
+                new ImportedUser("hashed", null, "$2a$04$hash"),
+                ImportedUser.UNREADABLE);
+    }
+
+    @Test
+    @DisplayName("Should take CSV columns from the header in any order")
+    void next_shouldReadCsvColumnsByHeader() throws IOException {
+        // Arrange
+        String input = """
+                id,password,username
+                1,secret,plain
+                2,"with ""quotes"", and comma","quoted"
+                3,,empty
+                """;
+
+        // Act
+        List<ImportedUser> users = readAll(input, UserImportReader.Format.CSV);
+
+        // Assert
+        assertThat(users).containsExactly(
+                new ImportedUser("plain", "secret", null),
+                new ImportedUser("quoted", "with \"quotes\", and comma", null),
+                new ImportedUser("empty", null, null));
+    }
+
+    @Test
+    @DisplayName("Should reject CSV input without a password column")
+    void constructor_shouldRejectCsvWithoutPasswordColumn() {
+        // Act & Assert
+        assertThatThrownBy(() -> new UserImportReader(
+                new StringReader("username,email\nuser,user@example.com\n"), UserImportReader.Format.CSV, objectMapper))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<ImportedUser> readAll(String input, UserImportReader.Format format) throws IOException {
+        UserImportReader reader = new UserImportReader(new StringReader(input), format, objectMapper);
+        List<ImportedUser> users = new ArrayList<>();
+        ImportedUser user;
+        while ((user = reader.next()) != null) {
+            users.add(user);
+        }
+        return users;
+    }
+}
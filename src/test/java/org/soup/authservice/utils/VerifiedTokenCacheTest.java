@@ -0,0 +1,128 @@
+package org.soup.authservice.utils;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.soup.authservice.model.TokenClaims;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class VerifiedTokenCacheTest {
+    private static final String TOKEN = "header.payload.signature";
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        verifications.set(0);
+    }
+
+    @Test
+    @DisplayName("Should verify token only once while it is cached")
+    void get_shouldSkipVerifier_whenTokenIsCached() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, meterRegistry, clock);
+        TokenClaims claims = claimsExpiringIn(Duration.ofMinutes(5));
+
+        // Act
+        TokenClaims first = cache.get(TOKEN, countingVerifier(claims));
+        TokenClaims second = cache.get(TOKEN, countingVerifier(claims));
+
+        // Assert
+        assertThat(first).isEqualTo(claims);
+        assertThat(second).isEqualTo(claims);
+        assertThat(verifications.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should never serve cached claims after the token has expired")
+    void get_shouldVerifyAgain_whenCachedTokenHasExpired() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, meterRegistry, clock);
+        TokenClaims claims = claimsExpiringIn(Duration.ofMinutes(5));
+        cache.get(TOKEN, countingVerifier(claims));
+        clock.advance(Duration.ofMinutes(6));
+
+        // Act & Assert
+        assertThatThrownBy(() -> cache.get(TOKEN, token -> {
+            throw new JWTVerificationException("expired");
+        })).isInstanceOf(JWTVerificationException.class);
+    }
+
+    @Test
+    @DisplayName("Should not cache tokens that failed verification")
+    void get_shouldNotCacheFailedVerification() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, meterRegistry, clock);
+        TokenClaims claims = claimsExpiringIn(Duration.ofMinutes(5));
+        assertThatThrownBy(() -> cache.get(TOKEN, token -> {
+            throw new JWTVerificationException("invalid");
+        })).isInstanceOf(JWTVerificationException.class);
+
+        // Act
+        cache.get(TOKEN, countingVerifier(claims));
+
+        // Assert
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should verify token again after it was invalidated")
+    void invalidate_shouldEvictToken() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, meterRegistry, clock);
+        TokenClaims claims = claimsExpiringIn(Duration.ofMinutes(5));
+        cache.get(TOKEN, countingVerifier(claims));
+
+        // Act
+        cache.invalidate(TOKEN);
+        cache.get(TOKEN, countingVerifier(claims));
+
+        // Assert
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should always call verifier when cache is disabled")
+    void get_shouldAlwaysVerify_whenCacheIsDisabled() {
+        // Arrange
+        VerifiedTokenCache cache = new VerifiedTokenCache(false, 100, meterRegistry, clock);
+        TokenClaims claims = claimsExpiringIn(Duration.ofMinutes(5));
+
+        // Act
+        cache.get(TOKEN, countingVerifier(claims));
+        cache.get(TOKEN, countingVerifier(claims));
+
+        // Assert
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    private TokenClaims claimsExpiringIn(Duration duration) {
+        Instant now = clock.instant();
+        return new TokenClaims(UUID.randomUUID(), "user", TokenClaims.ACCESS, null, null, now, now.plus(duration));
+    }
+
+    private Function<String, TokenClaims> countingVerifier(TokenClaims claims) {
+        return token -> {
+            verifications.incrementAndGet();
+            return claims;
+        };
+    }
+}